@@ -0,0 +1,188 @@
+package paul6325106.fitnesse.listener;
+
+import fitnesse.testsystems.Assertion;
+import fitnesse.testsystems.ExceptionResult;
+import fitnesse.testsystems.TestPage;
+import fitnesse.testsystems.TestResult;
+import fitnesse.testsystems.TestSummary;
+import fitnesse.testsystems.TestSystem;
+import fitnesse.testsystems.TestSystemListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.util.RuntimeLog;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the wall time of each test page to an append-only RuntimeLog, independently of FitNesse's test history.
+ * SuiteSetUp and SuiteTearDown pages are reported to listeners like any other page, so their durations are recorded
+ * too. Records are written by a background thread so that the test thread never blocks on I/O; close the listener
+ * once testing has finished to flush outstanding records.
+ *
+ * As reading a RuntimeLog stops at the first torn record, a torn record left at the end of the log, e.g. by a crash, is
+ * truncated before appending. If a write fails, no further records are written by this listener, and whatever it left
+ * at the end of the log is truncated by the next listener to open it.
+ */
+public class RuntimeRecordingTestListener implements TestSystemListener, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RuntimeRecordingTestListener.class);
+
+    private static class Record {
+
+        private final String pathName;
+        private final long time;
+        private final long runtime;
+
+        Record(final String pathName, final long time, final long runtime) {
+            this.pathName = pathName;
+            this.time = time;
+            this.runtime = runtime;
+        }
+
+    }
+
+    private static final Record END = new Record(null, 0, 0);
+
+    private final Map<String, Long> startTimes = new ConcurrentHashMap<>();
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    private final FileOutputStream target;
+    private final DataOutputStream out;
+    private final Thread writer;
+
+    private volatile boolean failed;
+
+    public RuntimeRecordingTestListener(final File logFile) throws IOException {
+        final boolean empty = logFile.length() == 0;
+        long validLength = 0L;
+
+        if (!empty) {
+            // appending records of another format would make the whole log unreadable
+            RuntimeLog.checkHeader(logFile);
+            validLength = RuntimeLog.read(logFile, 0L, (pathName, time, runtime) -> { });
+        }
+
+        target = new FileOutputStream(logFile, true);
+
+        if (!empty && target.getChannel().size() > validLength) {
+            LOG.warn("Truncating torn record at the end of runtime log " + logFile + " from " + validLength);
+            target.getChannel().truncate(validLength);
+        }
+
+        out = new DataOutputStream(new BufferedOutputStream(target));
+
+        if (empty) {
+            RuntimeLog.writeHeader(out);
+            out.flush();
+        }
+
+        writer = new Thread(this::writeRecords, "runtime-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void testStarted(final TestPage testPage) {
+        startTimes.put(testPage.getFullPath(), System.nanoTime());
+    }
+
+    @Override
+    public void testComplete(final TestPage testPage, final TestSummary testSummary) {
+        final Long startTime = startTimes.remove(testPage.getFullPath());
+
+        if (startTime == null) {
+            return;
+        }
+
+        final long runtime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        queue.add(new Record(testPage.getFullPath(), System.currentTimeMillis(), runtime));
+    }
+
+    /**
+     * Writes all outstanding records and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        queue.add(END);
+
+        try {
+            writer.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failed) {
+            // flushing after a failed write could leave a partial record between complete ones
+            target.close();
+        } else {
+            out.close();
+        }
+    }
+
+    private void writeRecords() {
+        while (true) {
+            final Record record;
+            try {
+                record = queue.take();
+            } catch (final InterruptedException e) {
+                return;
+            }
+
+            if (record == END) {
+                return;
+            }
+
+            if (failed) {
+                continue;
+            }
+
+            try {
+                RuntimeLog.writeRecord(out, record.pathName, record.time, record.runtime);
+
+                // batch writes while tests are completing quickly, but never leave a record unflushed for long
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            } catch (final IOException e) {
+                LOG.error("Exception when writing runtime record for " + record.pathName
+                        + ", no further records will be written", e);
+                failed = true;
+            }
+        }
+    }
+
+    @Override
+    public void testSystemStarted(final TestSystem testSystem) {
+        // ignored
+    }
+
+    @Override
+    public void testOutputChunk(final String output) {
+        // ignored
+    }
+
+    @Override
+    public void testSystemStopped(final TestSystem testSystem, final Throwable cause) {
+        // ignored
+    }
+
+    @Override
+    public void testAssertionVerified(final Assertion assertion, final TestResult testResult) {
+        // ignored
+    }
+
+    @Override
+    public void testExceptionOccurred(final Assertion assertion, final ExceptionResult exceptionResult) {
+        // ignored
+    }
+
+}
@@ -1,28 +1,45 @@
 package paul6325106.fitnesse.teststorun;
 
-import fitnesse.wiki.PageCrawler;
 import fitnesse.wiki.PageType;
-import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
 import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
 import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+import paul6325106.fitnesse.util.PageMetadataLoader;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Determines the lowest common root page for a collection of WikiPages.
  * Includes an optional check for non-Suite page root (if desired for correctness).
  * Intended for programmatically determining the "requested page" for history formatting purposes.
+ *
+ * The common root is found in a single pass over the pages by walking parent pointers, aligning each page with the
+ * current common root by depth and comparing page names, so no paths are built or parsed. Whether a page is a Suite is
+ * read through a PageMetadataLoader, which callers may share between the calls of a single generation, as sibling
+ * groups tend to share the same Suite ancestors. Nothing is memoised by the finder itself.
+ *
+ * Given a WikiTreeIndex, the common root and its Suite ancestor are found from page ids instead, and no page data is
+ * read. Pages missing from the index are handled as if there were no index.
  */
 public class LowestCommonRootFinder {
 
-    private final PageCrawler pageCrawler;
+    private final WikiPage root;
+    private final WikiTreeIndex index;
 
     public LowestCommonRootFinder(final WikiPage root) {
-        this.pageCrawler = root.getPageCrawler();
+        this(root, null);
+    }
+
+    /**
+     * @param root Root of the wiki.
+     * @param index WikiTreeIndex of the wiki, or null to find roots from the WikiPages alone.
+     */
+    public LowestCommonRootFinder(final WikiPage root, final WikiTreeIndex index) {
+        this.root = root;
+        this.index = index;
     }
 
     /**
@@ -35,28 +52,74 @@ public class LowestCommonRootFinder {
     public WikiPage getLowestCommonRoot(final Collection<WikiPage> pages, final boolean enforceSuite)
             throws TestsToRunContextGeneratorException {
 
+        return getLowestCommonRoot(pages, enforceSuite, new PageMetadataLoader());
+    }
+
+    /**
+     * Gets the lowest ancestor WikiPage common to all WikiPages in a Collection.
+     * @param pages WikiPages with at least one common ancestor WikiPage.
+     * @param enforceSuite Will only consider Suite pages as roots if true.
+     * @param loader PageMetadataLoader to read whether pages are Suites with. Its cache is never refreshed, so it
+     *               should not outlive the generation it is shared by.
+     * @return WikiPage identified as lowest common root.
+     * @throws TestsToRunContextGeneratorException if unable to find a suitable root page.
+     */
+    public WikiPage getLowestCommonRoot(final Collection<WikiPage> pages, final boolean enforceSuite,
+            final PageMetadataLoader loader) throws TestsToRunContextGeneratorException {
+
         if (pages.isEmpty()) {
             return null;
         }
 
-        final List<String> paths = getPaths(pages);
+        if (index != null) {
+            final WikiPage lowestCommonRoot = getLowestCommonRootFromIndex(pages, enforceSuite);
+
+            if (lowestCommonRoot != null) {
+                return lowestCommonRoot;
+            }
+        }
 
-        String lowestCommonRootPath = paths.remove(0);
+        final Iterator<WikiPage> iterator = pages.iterator();
 
-        for (final String path : paths) {
-            lowestCommonRootPath = getLowestCommonRootPath(lowestCommonRootPath, path);
+        // ancestors of the first page, indexed by depth, with the top of the tree at 0
+        final List<WikiPage> ancestors = getAncestors(iterator.next());
+        int commonDepth = ancestors.size() - 1;
+
+        if (!isRoot(ancestors.get(0))) {
+            throw unableToFindCommonRoot(pages);
         }
 
-        WikiPage lowestCommonRoot = getPage(lowestCommonRootPath);
+        while (iterator.hasNext() && commonDepth > 0) {
+            final WikiPage page = iterator.next();
+            WikiPage ancestor = page;
+            int depth = getDepth(page);
+
+            while (depth > commonDepth) {
+                ancestor = ancestor.getParent();
+                --depth;
+            }
+
+            commonDepth = depth;
 
-        if (lowestCommonRoot == null) {
-            throw new TestsToRunContextGeneratorException(String.format(
-                    "Unable to find common root on pathName %s for pages %s: ", lowestCommonRootPath, pages),
-                    TestsToRunContextGeneratorReason.UNABLE_TO_FIND_COMMON_ROOT);
+            // names are compared all the way up, as pages with the same name may have different parents
+            while (depth > 0) {
+                if (!ancestor.getName().equals(ancestors.get(depth).getName())) {
+                    commonDepth = depth - 1;
+                }
+
+                ancestor = ancestor.getParent();
+                --depth;
+            }
+
+            if (!isRoot(ancestor)) {
+                throw unableToFindCommonRoot(pages);
+            }
         }
 
+        WikiPage lowestCommonRoot = ancestors.get(commonDepth);
+
         if (enforceSuite) {
-            lowestCommonRoot = getLowestSuitePageAncestor(lowestCommonRoot);
+            lowestCommonRoot = getLowestSuitePageAncestor(lowestCommonRoot, loader);
 
             if (lowestCommonRoot == null) {
                 throw new TestsToRunContextGeneratorException("Unable to find Suite page as common root: " + pages,
@@ -68,52 +131,104 @@ public class LowestCommonRootFinder {
         return lowestCommonRoot;
     }
 
-    private List<String> getPaths(final Collection<WikiPage> pages) {
-        return pages.stream().map(this::getFullPathString).collect(Collectors.toList());
-    }
+    /**
+     * @return Lowest common root, or null if a page is missing from the index.
+     */
+    private WikiPage getLowestCommonRootFromIndex(final Collection<WikiPage> pages, final boolean enforceSuite)
+            throws TestsToRunContextGeneratorException {
 
-    private String getFullPathString(final WikiPage page) {
-        return page.getPageCrawler().getFullPath().toString();
-    }
+        // ids are only valid until the index is refreshed
+        final WikiTreeIndex snapshot = index.snapshot();
+        final Iterator<WikiPage> iterator = pages.iterator();
+        final WikiPage first = iterator.next();
+        final int firstId = snapshot.getId(first);
 
-    private String getLowestCommonRootPath(final String path1, final String path2) {
-        final String[] words1 = path1.split("\\.");
-        final String[] words2 = path2.split("\\.");
+        if (firstId == WikiTreeIndex.NO_PAGE) {
+            return null;
+        }
 
-        final int min = Math.min(words1.length, words2.length);
+        int commonId = firstId;
 
-        final List<String> matched = new ArrayList<>(min);
+        while (iterator.hasNext()) {
+            final int id = snapshot.getId(iterator.next());
 
-        for (int i = 0; i < min; ++i) {
-            if (words1[i].equals(words2[i])) {
-                matched.add(words1[i]);
-            } else {
-                break;
+            if (id == WikiTreeIndex.NO_PAGE) {
+                return null;
+            }
+
+            commonId = snapshot.getLowestCommonAncestor(commonId, id);
+        }
+
+        if (enforceSuite) {
+            while (commonId != WikiTreeIndex.NO_PAGE && !snapshot.isPageType(commonId, PageType.SUITE)) {
+                commonId = snapshot.getParent(commonId);
+            }
+
+            if (commonId == WikiTreeIndex.NO_PAGE) {
+                throw new TestsToRunContextGeneratorException("Unable to find Suite page as common root: " + pages,
+                        TestsToRunContextGeneratorReason.UNABLE_TO_FIND_SUITE_PAGE_AS_COMMON_ROOT);
             }
         }
 
-        // if no words are matched, then the join will result in an empty String
-        // this is a valid path, pointing at absolute root
+        // the common root is an ancestor of the first page, so it is reached by walking up from it
+        WikiPage lowestCommonRoot = first;
+
+        for (int depth = snapshot.getDepth(firstId); depth > snapshot.getDepth(commonId); --depth) {
+            lowestCommonRoot = lowestCommonRoot.getParent();
+        }
 
-        return String.join(".", matched);
+        return lowestCommonRoot;
     }
 
-    private WikiPage getPage(final String path) {
-        return pageCrawler.getPage(PathParser.parse(path));
+    private static List<WikiPage> getAncestors(final WikiPage page) {
+        final List<WikiPage> ancestors = new ArrayList<>(getDepth(page) + 1);
+
+        for (WikiPage ancestor = page; ; ancestor = ancestor.getParent()) {
+            ancestors.add(ancestor);
+
+            if (ancestor.isRoot()) {
+                break;
+            }
+        }
+
+        // reversed in place, so the top of the tree is at 0
+        for (int i = 0, j = ancestors.size() - 1; i < j; ++i, --j) {
+            ancestors.set(i, ancestors.set(j, ancestors.get(i)));
+        }
+
+        return ancestors;
     }
 
-    private WikiPage getLowestSuitePageAncestor(final WikiPage page) {
-        if (isSuitePage(page)) {
-            return page;
-        } else if (page.isRoot()) {
-            return null;
-        } else {
-            return getLowestSuitePageAncestor(page.getParent());
+    private static int getDepth(final WikiPage page) {
+        int depth = 0;
+
+        for (WikiPage ancestor = page; !ancestor.isRoot(); ancestor = ancestor.getParent()) {
+            ++depth;
         }
+
+        return depth;
     }
 
-    private boolean isSuitePage(final WikiPage page) {
-        return page.getData().hasAttribute(PageType.SUITE.toString());
+    /**
+     * Pages must be within the tree this finder was created for, with its root at the top.
+     */
+    private boolean isRoot(final WikiPage top) {
+        return top == root || top.equals(root);
+    }
+
+    private static TestsToRunContextGeneratorException unableToFindCommonRoot(final Collection<WikiPage> pages) {
+        return new TestsToRunContextGeneratorException("Unable to find common root for pages: " + pages,
+                TestsToRunContextGeneratorReason.UNABLE_TO_FIND_COMMON_ROOT);
+    }
+
+    private static WikiPage getLowestSuitePageAncestor(final WikiPage page, final PageMetadataLoader loader) {
+        for (WikiPage ancestor = page; ; ancestor = ancestor.getParent()) {
+            if (loader.getMetadata(ancestor).hasAttribute(PageType.SUITE.toString())) {
+                return ancestor;
+            } else if (ancestor.isRoot()) {
+                return null;
+            }
+        }
     }
 
 }
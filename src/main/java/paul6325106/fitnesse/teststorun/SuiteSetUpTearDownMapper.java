@@ -1,36 +1,92 @@
 package paul6325106.fitnesse.teststorun;
 
-import fitnesse.wiki.PageCrawler;
 import fitnesse.wiki.PageData;
 import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPagePath;
 import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
 import static paul6325106.fitnesse.util.WikiPageUtil.getFullPathName;
 
 /**
  * Maps WikiPages to their SuiteSetUp/SuiteTearDown pairs.
+ *
+ * SuiteSetUp/SuiteTearDown resolution follows PageCrawler.getClosestInheritedPage, but the pages inherited from each
+ * ancestor are memoised for the duration of a mapping, so sibling WikiPages share a single walk of the ancestor chain.
  */
 public class SuiteSetUpTearDownMapper {
 
+    private static final WikiPage[] NO_PAGES = new WikiPage[2];
+
+    private final int parallelism;
+    private final WikiTreeIndex index;
+
+    public SuiteSetUpTearDownMapper() {
+        this(1);
+    }
+
+    /**
+     * Maps WikiPages on the calling thread using the SuiteSetUp and SuiteTearDown resolved by a WikiTreeIndex,
+     * deduplicating them by page id. WikiPages missing from the index are resolved from the wiki.
+     * @param index WikiTreeIndex of the wiki the WikiPages belong to.
+     */
+    public SuiteSetUpTearDownMapper(final WikiTreeIndex index) {
+        this.parallelism = 1;
+        this.index = index;
+    }
+
+    /**
+     * @param parallelism Maximum number of WikiPages to map concurrently. 1 maps WikiPages on the calling thread,
+     *                    deduplicating them by WikiPage comparison. Above 1, WikiPages are deduplicated by full path
+     *                    name and mapped on a pool of this size.
+     */
+    public SuiteSetUpTearDownMapper(final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+
+        this.parallelism = parallelism;
+        this.index = null;
+    }
+
     /**
      * Gets a mapping of the SuiteSetUp and SuiteTearDown used by WikiPages when executed.
      * A SuiteSetUp and/or SuiteTearDown may be null if no such page is available to a WikiPage.
+     * When mapping in parallel or from a WikiTreeIndex, pairs are keyed in order of first appearance and each list
+     * keeps the order in which its WikiPages were first given, so the result does not depend on thread scheduling.
      * @param wikiPages WikiPages to map.
      * @return Map of SuiteSetUp/SuiteTearDown pairs to WikiPages.
      */
     public Map<SuiteSetUpTearDownPair, List<WikiPage>> getSuiteSetUpTearDownMap(final Collection<WikiPage> wikiPages) {
+        if (index != null) {
+            return getSuiteSetUpTearDownMapFromIndex(wikiPages);
+        } else if (parallelism > 1) {
+            return getSuiteSetUpTearDownMapInParallel(wikiPages);
+        }
+
         final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = new HashMap<>();
+        final Map<String, WikiPage[]> inheritedPages = new HashMap<>();
 
         for (final WikiPage wikiPage : getUnique(wikiPages)) {
-            final SuiteSetUpTearDownPair pair = getSuiteSetUpTearDownPair(wikiPage);
+            final SuiteSetUpTearDownPair pair = getSuiteSetUpTearDownPair(wikiPage,
+                    wikiPage.getPageCrawler().getFullPath(), inheritedPages);
 
             if (map.containsKey(pair)) {
                 map.get(pair).add(wikiPage);
@@ -50,11 +106,175 @@ public class SuiteSetUpTearDownMapper {
         return unique;
     }
 
-    private SuiteSetUpTearDownPair getSuiteSetUpTearDownPair(final WikiPage wikiPage) {
-        final PageCrawler pageCrawler = wikiPage.getPageCrawler();
-        final WikiPage suiteSetUp = pageCrawler.getClosestInheritedPage(PageData.SUITE_SETUP_NAME);
-        final WikiPage suiteTearDown = pageCrawler.getClosestInheritedPage(PageData.SUITE_TEARDOWN_NAME);
-        return new SuiteSetUpTearDownPair(getFullPathName(suiteSetUp), getFullPathName(suiteTearDown));
+    /**
+     * Looks up each WikiPage's SuiteSetUp and SuiteTearDown ids in the index, building each distinct pair once.
+     */
+    private Map<SuiteSetUpTearDownPair, List<WikiPage>> getSuiteSetUpTearDownMapFromIndex(
+            final Collection<WikiPage> wikiPages) {
+
+        // ids are only valid until the index is refreshed
+        final WikiTreeIndex snapshot = index.snapshot();
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = new LinkedHashMap<>();
+        final Map<Long, SuiteSetUpTearDownPair> pairs = new HashMap<>();
+        final Map<String, WikiPage[]> inheritedPages = new HashMap<>();
+        final BitSet indexed = new BitSet(snapshot.size());
+        final Set<String> unindexed = new HashSet<>();
+
+        for (final WikiPage wikiPage : wikiPages) {
+            final int id = snapshot.getId(wikiPage);
+            final SuiteSetUpTearDownPair pair;
+
+            if (id != WikiTreeIndex.NO_PAGE) {
+                if (indexed.get(id)) {
+                    continue;
+                }
+
+                indexed.set(id);
+
+                final int suiteSetUp = snapshot.getSuiteSetUp(id);
+                final int suiteTearDown = snapshot.getSuiteTearDown(id);
+                pair = pairs.computeIfAbsent(((long) suiteSetUp << 32) | (suiteTearDown & 0xffffffffL),
+                        key -> new SuiteSetUpTearDownPair(snapshot.getFullPathName(suiteSetUp),
+                                snapshot.getFullPathName(suiteTearDown)));
+            } else {
+                final WikiPagePath path = wikiPage.getPageCrawler().getFullPath();
+
+                if (!unindexed.add(path.toString())) {
+                    continue;
+                }
+
+                pair = getSuiteSetUpTearDownPair(wikiPage, path, inheritedPages);
+            }
+
+            map.computeIfAbsent(pair, key -> new ArrayList<>()).add(wikiPage);
+        }
+
+        return map;
+    }
+
+    /**
+     * Resolves full paths and then pairs on a ForkJoinPool, deduplicating by full path name in between. Results are
+     * written to arrays indexed by input position and grouped on the calling thread into lists sized up front.
+     */
+    private Map<SuiteSetUpTearDownPair, List<WikiPage>> getSuiteSetUpTearDownMapInParallel(
+            final Collection<WikiPage> wikiPages) {
+
+        final WikiPage[] pages = wikiPages.toArray(new WikiPage[wikiPages.size()]);
+        final WikiPagePath[] paths = new WikiPagePath[pages.length];
+        final Map<String, WikiPage[]> inheritedPages = new ConcurrentHashMap<>();
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, pages.length).parallel()
+                    .forEach(i -> paths[i] = pages[i].getPageCrawler().getFullPath())));
+
+            int unique = 0;
+            final Set<String> seen = new HashSet<>(pages.length * 2);
+
+            for (int i = 0; i < pages.length; ++i) {
+                if (seen.add(paths[i].toString())) {
+                    pages[unique] = pages[i];
+                    paths[unique] = paths[i];
+                    ++unique;
+                }
+            }
+
+            final int size = unique;
+            final SuiteSetUpTearDownPair[] pairs = new SuiteSetUpTearDownPair[size];
+
+            pool.invoke(ForkJoinTask.adapt(() -> IntStream.range(0, size).parallel()
+                    .forEach(i -> pairs[i] = getSuiteSetUpTearDownPair(pages[i], paths[i], inheritedPages))));
+
+            final Map<SuiteSetUpTearDownPair, Integer> counts = new LinkedHashMap<>();
+
+            for (int i = 0; i < size; ++i) {
+                counts.merge(pairs[i], 1, Integer::sum);
+            }
+
+            final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = new LinkedHashMap<>(counts.size() * 2);
+
+            for (final Map.Entry<SuiteSetUpTearDownPair, Integer> entry : counts.entrySet()) {
+                map.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+
+            for (int i = 0; i < size; ++i) {
+                map.get(pairs[i]).add(pages[i]);
+            }
+
+            return map;
+
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SuiteSetUpTearDownPair getSuiteSetUpTearDownPair(final WikiPage wikiPage, final WikiPagePath path,
+            final Map<String, WikiPage[]> inheritedPages) {
+
+        final WikiPage[] inherited = wikiPage.isRoot()
+                ? NO_PAGES
+                : getInheritedPages(wikiPage.getParent(), path.parentPath(), inheritedPages);
+
+        // the WikiPage's own children are probed but not memoised, as each WikiPage is only mapped once
+        final WikiPage[] pages = getClosestPages(wikiPage, inherited);
+        return new SuiteSetUpTearDownPair(getFullPathName(pages[0]), getFullPathName(pages[1]));
+    }
+
+    /**
+     * Gets the SuiteSetUp and SuiteTearDown closest to an ancestor page, including the ancestor's own children.
+     * Walks up only as far as the nearest memoised ancestor, then resolves and memoises each page on the way back down.
+     * Concurrent walks may resolve the same ancestor more than once, but always to the same pages.
+     */
+    private WikiPage[] getInheritedPages(final WikiPage ancestor, final WikiPagePath ancestorPath,
+            final Map<String, WikiPage[]> inheritedPages) {
+
+        final Deque<WikiPage> unresolvedPages = new ArrayDeque<>();
+        final Deque<String> unresolvedKeys = new ArrayDeque<>();
+
+        WikiPage page = ancestor;
+        WikiPagePath path = ancestorPath;
+        WikiPage[] inherited = NO_PAGES;
+
+        while (true) {
+            final String key = path.toString();
+            final WikiPage[] memoised = inheritedPages.get(key);
+
+            if (memoised != null) {
+                inherited = memoised;
+                break;
+            }
+
+            unresolvedPages.push(page);
+            unresolvedKeys.push(key);
+
+            if (page.isRoot()) {
+                break;
+            }
+
+            page = page.getParent();
+            path = path.parentPath();
+        }
+
+        while (!unresolvedPages.isEmpty()) {
+            inherited = getClosestPages(unresolvedPages.pop(), inherited);
+            inheritedPages.put(unresolvedKeys.pop(), inherited);
+        }
+
+        return inherited;
+    }
+
+    private WikiPage[] getClosestPages(final WikiPage page, final WikiPage[] inherited) {
+        final WikiPage suiteSetUp = page.getChildPage(PageData.SUITE_SETUP_NAME);
+        final WikiPage suiteTearDown = page.getChildPage(PageData.SUITE_TEARDOWN_NAME);
+
+        if (suiteSetUp == null && suiteTearDown == null) {
+            return inherited;
+        }
+
+        return new WikiPage[] {
+                suiteSetUp == null ? inherited[0] : suiteSetUp,
+                suiteTearDown == null ? inherited[1] : suiteTearDown
+        };
     }
 
 }
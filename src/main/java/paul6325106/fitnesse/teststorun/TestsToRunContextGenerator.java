@@ -2,16 +2,24 @@ package paul6325106.fitnesse.teststorun;
 
 import fitnesse.FitNesseContext;
 import fitnesse.wiki.WikiPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
 import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
 import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunPlan;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
 import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.order.OrderingStrategy;
+import paul6325106.fitnesse.teststorun.partition.MakespanEstimator;
 import paul6325106.fitnesse.teststorun.partition.PartitionStrategy;
 import paul6325106.fitnesse.teststorun.weight.WeightStrategy;
+import paul6325106.fitnesse.util.PageMetadataLoader;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -21,20 +29,121 @@ import java.util.stream.Collectors;
  */
 public class TestsToRunContextGenerator {
 
+    private static Logger LOGGER = LoggerFactory.getLogger(TestsToRunContextGenerator.class);
+
     private final SuiteSetUpTearDownMapper suiteSetUpTearDownMapper;
     private final WeightedWikiPageGroupFactory weightedWikiPageGroupFactory;
     private final LowestCommonRootFinder lowestCommonRootFinder;
     private final PartitionStrategy partitionStrategy;
     private final boolean enforceSuiteRoot;
+    private final OrderingStrategy orderingStrategy;
 
     public TestsToRunContextGenerator(final FitNesseContext context, final WeightStrategy weightStrategy,
             final PartitionStrategy partitionStrategy, final boolean enforceSuiteRoot) {
 
-        this.suiteSetUpTearDownMapper = new SuiteSetUpTearDownMapper();
-        this.lowestCommonRootFinder = new LowestCommonRootFinder(context.getRootPage());
-        this.weightedWikiPageGroupFactory = new WeightedWikiPageGroupFactory(weightStrategy);
-        this.partitionStrategy = partitionStrategy;
-        this.enforceSuiteRoot = enforceSuiteRoot;
+        this(builder(context, weightStrategy, partitionStrategy).enforceSuiteRoot(enforceSuiteRoot));
+    }
+
+    private TestsToRunContextGenerator(final Builder builder) {
+        this.suiteSetUpTearDownMapper = builder.index == null
+                ? new SuiteSetUpTearDownMapper(builder.mappingParallelism)
+                : new SuiteSetUpTearDownMapper(builder.index);
+        this.lowestCommonRootFinder = new LowestCommonRootFinder(builder.context.getRootPage(), builder.index);
+        this.weightedWikiPageGroupFactory =
+                new WeightedWikiPageGroupFactory(builder.weightStrategy, builder.weightParallelism);
+        this.partitionStrategy = builder.partitionStrategy;
+        this.enforceSuiteRoot = builder.enforceSuiteRoot;
+        this.orderingStrategy = builder.orderingStrategy;
+    }
+
+    /**
+     * Starts building a TestsToRunContextGenerator with the suite root enforced, no ordering strategy, no index, and
+     * no parallelism.
+     */
+    public static Builder builder(final FitNesseContext context, final WeightStrategy weightStrategy,
+            final PartitionStrategy partitionStrategy) {
+
+        return new Builder(context, weightStrategy, partitionStrategy);
+    }
+
+    /**
+     * Builds a TestsToRunContextGenerator with optional settings.
+     */
+    public static class Builder {
+
+        private final FitNesseContext context;
+        private final WeightStrategy weightStrategy;
+        private final PartitionStrategy partitionStrategy;
+        private boolean enforceSuiteRoot = true;
+        private int weightParallelism = 1;
+        private OrderingStrategy orderingStrategy;
+        private WikiTreeIndex index;
+        private int mappingParallelism = 1;
+
+        private Builder(final FitNesseContext context, final WeightStrategy weightStrategy,
+                final PartitionStrategy partitionStrategy) {
+
+            this.context = context;
+            this.weightStrategy = weightStrategy;
+            this.partitionStrategy = partitionStrategy;
+        }
+
+        public Builder enforceSuiteRoot(final boolean enforceSuiteRoot) {
+            this.enforceSuiteRoot = enforceSuiteRoot;
+            return this;
+        }
+
+        /**
+         * @param weightParallelism Maximum number of weights to resolve concurrently. The WeightStrategy must be
+         *                          thread-safe if this is above 1.
+         */
+        public Builder weightParallelism(final int weightParallelism) {
+            this.weightParallelism = weightParallelism;
+            return this;
+        }
+
+        /**
+         * @param orderingStrategy Orders the pages within each TestsToRunContext, or null to keep the order in which
+         *                         they were partitioned.
+         */
+        public Builder orderingStrategy(final OrderingStrategy orderingStrategy) {
+            this.orderingStrategy = orderingStrategy;
+            return this;
+        }
+
+        /**
+         * @param index WikiTreeIndex of the context's wiki to map WikiPages and find common roots with, or null to
+         *              crawl the wiki instead. The caller is responsible for refreshing it. Cannot be combined with
+         *              a mapping parallelism above 1.
+         */
+        public Builder index(final WikiTreeIndex index) {
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * @param mappingParallelism Maximum number of WikiPages to map to their SuiteSetUp and SuiteTearDown
+         *                           concurrently when crawling the wiki. Cannot be combined with an index.
+         * @see SuiteSetUpTearDownMapper#SuiteSetUpTearDownMapper(int)
+         */
+        public Builder mappingParallelism(final int mappingParallelism) {
+            this.mappingParallelism = mappingParallelism;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException when both an index and a mapping parallelism above 1 are set, as the
+         *                                  index maps without crawling.
+         */
+        public TestsToRunContextGenerator build() {
+            if (index != null && mappingParallelism > 1) {
+                throw new IllegalArgumentException("Mapping parallelism cannot be used with an index: " +
+                        mappingParallelism);
+            }
+
+            return new TestsToRunContextGenerator(this);
+        }
+
     }
 
     /**
@@ -57,24 +166,228 @@ public class TestsToRunContextGenerator {
         return build(split);
     }
 
+    /**
+     * Generates TestsToRunContexts for the smallest executor count whose predicted makespan, including duplicated
+     * SuiteSetUp and SuiteTearDown weights, is within a budget. Weights are resolved once and every count from 1 to the
+     * maximum is tried in turn, as makespan is not necessarily monotonic in count. If no count meets the budget, the
+     * count with the lowest predicted makespan is used.
+     * @param pages Pages to partition.
+     * @param budget Maximum predicted makespan, in the units of the WeightStrategy, e.g. millis.
+     * @param maxCount Maximum number of sets to create when splitting, at least one.
+     * @return TestsToRunPlan with the chosen count and its predicted makespan.
+     * @throws TestsToRunContextGeneratorException when unable to create partitions due to suite structure issues or
+     *                                             broken FitNesse interface implementations.
+     */
+    public TestsToRunPlan generateForBudget(final Collection<WikiPage> pages, final long budget, final int maxCount)
+            throws TestsToRunContextGeneratorException {
+
+        checkMaxCount(maxCount);
+
+        final List<WeightedWikiPageGroup> groups = buildGroups(pages);
+
+        int bestCount = 1;
+        Collection<WeightedWikiPageGroup> best = null;
+        long bestMakespan = Long.MAX_VALUE;
+
+        for (int count = 1; count <= maxCount; ++count) {
+            final Collection<WeightedWikiPageGroup> split = partitionStrategy.partition(new ArrayList<>(groups), count);
+            final long makespan = MakespanEstimator.getMakespan(split, count);
+
+            if (makespan < bestMakespan) {
+                bestCount = count;
+                best = split;
+                bestMakespan = makespan;
+            }
+
+            if (makespan <= budget) {
+                return new TestsToRunPlan(build(split), count, makespan);
+            }
+        }
+
+        LOGGER.warn("No executor count up to " + maxCount + " meets budget " + budget + ", using " + bestCount +
+                " with predicted makespan " + bestMakespan);
+
+        return new TestsToRunPlan(build(best), bestCount, bestMakespan);
+    }
+
+    /**
+     * Generates TestsToRunContexts for the executor count beyond which adding another executor improves the predicted
+     * makespan, including duplicated SuiteSetUp and SuiteTearDown weights, by less than a threshold. Weights are
+     * resolved once.
+     * @param pages Pages to partition.
+     * @param maxCount Maximum number of sets to create when splitting, at least one.
+     * @param minGain Minimum fractional reduction in predicted makespan for another executor to be worthwhile, e.g.
+     *                0.05 for 5%.
+     * @return TestsToRunPlan with the chosen count and its predicted makespan.
+     * @throws TestsToRunContextGeneratorException when unable to create partitions due to suite structure issues or
+     *                                             broken FitNesse interface implementations.
+     */
+    public TestsToRunPlan generateForMarginalGain(final Collection<WikiPage> pages, final int maxCount,
+            final double minGain) throws TestsToRunContextGeneratorException {
+
+        checkMaxCount(maxCount);
+
+        final List<WeightedWikiPageGroup> groups = buildGroups(pages);
+
+        int count = 1;
+        Collection<WeightedWikiPageGroup> split = partitionStrategy.partition(new ArrayList<>(groups), count);
+        long makespan = MakespanEstimator.getMakespan(split, count);
+
+        while (count < maxCount) {
+            final Collection<WeightedWikiPageGroup> nextSplit =
+                    partitionStrategy.partition(new ArrayList<>(groups), count + 1);
+            final long nextMakespan = MakespanEstimator.getMakespan(nextSplit, count + 1);
+
+            if (makespan - nextMakespan < minGain * makespan) {
+                break;
+            }
+
+            ++count;
+            split = nextSplit;
+            makespan = nextMakespan;
+        }
+
+        return new TestsToRunPlan(build(split), count, makespan);
+    }
+
+    private static void checkMaxCount(final int maxCount) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("Maximum count must be at least one: " + maxCount);
+        }
+    }
+
+    private List<WeightedWikiPageGroup> buildGroups(final Collection<WikiPage> pages)
+            throws TestsToRunContextGeneratorException {
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map =
+                suiteSetUpTearDownMapper.getSuiteSetUpTearDownMap(pages);
+        return weightedWikiPageGroupFactory.build(map);
+    }
+
+    /**
+     * Generates TestsToRunContexts for executors of differing speeds, balancing predicted completion time rather than
+     * raw weight. Each TestsToRunContext is tagged with the executor it was sized for.
+     * @param pages Pages to partition.
+     * @param executors Executors to partition for, at least one, with distinct names.
+     * @return List of TestsToRunContexts describing original collection of pages, grouped by executor in the order of
+     * the executors given, and in descending order of total weight for each executor.
+     * @throws TestsToRunContextGeneratorException when unable to create partitions due to suite structure issues or
+     *                                             broken FitNesse interface implementations.
+     */
+    public List<TestsToRunContext> generate(final Collection<WikiPage> pages, final List<ExecutorSpec> executors)
+            throws TestsToRunContextGeneratorException {
+
+        if (executors.isEmpty()) {
+            throw new IllegalArgumentException("At least one executor is required");
+        }
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map =
+                suiteSetUpTearDownMapper.getSuiteSetUpTearDownMap(pages);
+        final List<WeightedWikiPageGroup> groups = weightedWikiPageGroupFactory.build(map);
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> assigned = partitionStrategy.partition(groups, executors);
+
+        final PageMetadataLoader loader = new PageMetadataLoader();
+        final List<TestsToRunContext> testsToRunContexts = new ArrayList<>();
+        for (final Map.Entry<ExecutorSpec, List<WeightedWikiPageGroup>> entry : assigned.entrySet()) {
+            for (final WeightedWikiPageGroup group : entry.getValue()) {
+                testsToRunContexts.add(build(group, entry.getKey(), loader));
+            }
+        }
+        return testsToRunContexts;
+    }
+
+    /**
+     * Generates a queue of batches for executors to claim as they become free, rather than fixed partitions. This
+     * tolerates mispredicted weights, as an executor that finishes early simply claims more batches. The partition
+     * strategy is not used.
+     * @param pages Pages to batch.
+     * @param batchWeight Maximum total page weight of a batch, unless the batch is a single page.
+     * @return TestsToRunQueue of batches, each with a single SuiteSetUp and SuiteTearDown combination, heaviest first.
+     * @throws TestsToRunContextGeneratorException when unable to create batches due to suite structure issues or
+     *                                             broken FitNesse interface implementations.
+     */
+    public TestsToRunQueue generateQueue(final Collection<WikiPage> pages, final long batchWeight)
+            throws TestsToRunContextGeneratorException {
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map =
+                suiteSetUpTearDownMapper.getSuiteSetUpTearDownMap(pages);
+        final List<WeightedWikiPageGroup> groups = weightedWikiPageGroupFactory.build(map);
+
+        final PageMetadataLoader loader = new PageMetadataLoader();
+        final List<TestsToRunQueue.Batch> batches = new ArrayList<>();
+        for (final WeightedWikiPageGroup group : groups) {
+            final List<WeightedWikiPage> groupPages = new ArrayList<>(group.getWikiPages());
+            groupPages.sort(Comparator.comparingLong(WeightedWikiPage::getWeight).reversed());
+
+            List<WeightedWikiPage> batch = new ArrayList<>();
+            long weight = 0L;
+
+            for (final WeightedWikiPage page : groupPages) {
+                if (!batch.isEmpty() && weight + page.getWeight() > batchWeight) {
+                    batches.add(buildBatch(group.getSuiteSetUpTearDownPair(), batch, weight, loader));
+                    batch = new ArrayList<>();
+                    weight = 0L;
+                }
+
+                batch.add(page);
+                weight += page.getWeight();
+            }
+
+            if (!batch.isEmpty()) {
+                batches.add(buildBatch(group.getSuiteSetUpTearDownPair(), batch, weight, loader));
+            }
+        }
+
+        batches.sort(Comparator.comparingLong(TestsToRunQueue.Batch::getWeight).reversed());
+        return new TestsToRunQueue(batches);
+    }
+
+    private TestsToRunQueue.Batch buildBatch(final SuiteSetUpTearDownPair pair, final List<WeightedWikiPage> batch,
+            final long weight, final PageMetadataLoader loader) throws TestsToRunContextGeneratorException {
+
+        final List<WikiPage> pages = order(batch).stream()
+                .map(WeightedWikiPage::getWikiPage)
+                .collect(Collectors.toList());
+
+        final WikiPage lowestCommonRoot = lowestCommonRootFinder.getLowestCommonRoot(pages, enforceSuiteRoot, loader);
+
+        return new TestsToRunQueue.Batch(pair, lowestCommonRoot, pages, weight);
+    }
+
     private List<TestsToRunContext> build(final Collection<WeightedWikiPageGroup> groups)
             throws TestsToRunContextGeneratorException {
 
+        final PageMetadataLoader loader = new PageMetadataLoader();
         final List<TestsToRunContext> testsToRunContexts = new ArrayList<>();
         for (WeightedWikiPageGroup group : groups) {
-            testsToRunContexts.add(build(group));
+            testsToRunContexts.add(build(group, null, loader));
         }
         return testsToRunContexts;
     }
 
-    private TestsToRunContext build(final WeightedWikiPageGroup group) throws TestsToRunContextGeneratorException {
-        final List<WikiPage> pages = group.getWikiPages().stream()
+    private TestsToRunContext build(final WeightedWikiPageGroup group, final ExecutorSpec executor,
+            final PageMetadataLoader loader) throws TestsToRunContextGeneratorException {
+
+        final List<WikiPage> pages = order(group.getWikiPages()).stream()
                 .map(WeightedWikiPage::getWikiPage)
                 .collect(Collectors.toList());
 
-        final WikiPage lowestCommonRoot = lowestCommonRootFinder.getLowestCommonRoot(pages, enforceSuiteRoot);
+        final WikiPage lowestCommonRoot = lowestCommonRootFinder.getLowestCommonRoot(pages, enforceSuiteRoot, loader);
+
+        return new TestsToRunContext(lowestCommonRoot, pages, executor, group.getSuiteSetUpTearDownPair(),
+                group.getTotalWeight());
+    }
+
+    private List<WeightedWikiPage> order(final List<WeightedWikiPage> pages)
+            throws TestsToRunContextGeneratorException {
+
+        if (orderingStrategy == null) {
+            return pages;
+        }
 
-        return new TestsToRunContext(lowestCommonRoot, pages);
+        final List<WeightedWikiPage> ordered = new ArrayList<>(pages);
+        ordered.sort(orderingStrategy.getComparator(ordered));
+        return ordered;
     }
 
 }
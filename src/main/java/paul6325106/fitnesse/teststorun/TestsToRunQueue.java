@@ -0,0 +1,136 @@
+package paul6325106.fitnesse.teststorun;
+
+import fitnesse.wiki.WikiPage;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thread-safe queue of batches of WikiPages, for executors to claim as they become free rather than committing every
+ * page to an executor up front. Every batch shares a single SuiteSetUp and SuiteTearDown combination.
+ *
+ * Batches are claimed heaviest first, except that an executor is preferentially given another batch with the same
+ * SuiteSetUp and SuiteTearDown as the last batch it claimed, so that it may reuse the setup it has already run.
+ */
+public class TestsToRunQueue {
+
+    static class Batch {
+
+        private final SuiteSetUpTearDownPair suiteSetUpTearDownPair;
+        private final WikiPage requestedPage;
+        private final List<WikiPage> testsToRun;
+        private final long weight;
+        private boolean claimed;
+
+        Batch(final SuiteSetUpTearDownPair suiteSetUpTearDownPair, final WikiPage requestedPage,
+                final List<WikiPage> testsToRun, final long weight) {
+
+            this.suiteSetUpTearDownPair = suiteSetUpTearDownPair;
+            this.requestedPage = requestedPage;
+            this.testsToRun = testsToRun;
+            this.weight = weight;
+        }
+
+        long getWeight() {
+            return weight;
+        }
+
+        List<WikiPage> getTestsToRun() {
+            return testsToRun;
+        }
+
+    }
+
+    private final Deque<Batch> batches;
+    private final Map<SuiteSetUpTearDownPair, Deque<Batch>> batchesByPair = new HashMap<>();
+    private final Map<ExecutorSpec, SuiteSetUpTearDownPair> lastPairs = new HashMap<>();
+    private int remaining;
+    private long remainingWeight;
+
+    /**
+     * @param batches Batches in the order they should be claimed.
+     */
+    TestsToRunQueue(final List<Batch> batches) {
+        this.batches = new ArrayDeque<>(batches);
+
+        for (final Batch batch : batches) {
+            batchesByPair.computeIfAbsent(batch.suiteSetUpTearDownPair, pair -> new ArrayDeque<>()).add(batch);
+            remainingWeight += batch.weight;
+        }
+
+        remaining = batches.size();
+    }
+
+    /**
+     * Claims the next batch for an executor.
+     * @param executor Executor claiming the batch. Its identity is used to track the setup it last ran.
+     * @return TestsToRunContext for the batch, tagged with the executor, or null if no batches remain.
+     */
+    public synchronized TestsToRunContext claim(final ExecutorSpec executor) {
+        Batch batch = null;
+
+        final SuiteSetUpTearDownPair lastPair = lastPairs.get(executor);
+        if (lastPair != null) {
+            batch = pollUnclaimed(batchesByPair.get(lastPair));
+        }
+
+        if (batch == null) {
+            batch = pollUnclaimed(batches);
+        }
+
+        if (batch == null) {
+            return null;
+        }
+
+        batch.claimed = true;
+        --remaining;
+        remainingWeight -= batch.weight;
+        lastPairs.put(executor, batch.suiteSetUpTearDownPair);
+
+        return new TestsToRunContext(batch.requestedPage, batch.testsToRun, executor, batch.suiteSetUpTearDownPair,
+                batch.weight);
+    }
+
+    /**
+     * @return number of batches not yet claimed.
+     */
+    public synchronized int size() {
+        return remaining;
+    }
+
+    /**
+     * @return total weight of the batches not yet claimed.
+     */
+    public synchronized long getRemainingWeight() {
+        return remainingWeight;
+    }
+
+    public synchronized boolean isEmpty() {
+        return remaining == 0;
+    }
+
+    /**
+     * Batches are held in both the ordered deque and their pair's deque, and are only removed from the one they were
+     * claimed through, so claimed batches are skipped here.
+     */
+    private static Batch pollUnclaimed(final Deque<Batch> deque) {
+        if (deque == null) {
+            return null;
+        }
+
+        Batch batch = deque.poll();
+
+        while (batch != null && batch.claimed) {
+            batch = deque.poll();
+        }
+
+        return batch;
+    }
+
+}
@@ -5,44 +5,69 @@ import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
 import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
 import paul6325106.fitnesse.teststorun.weight.WeightStrategy;
 import paul6325106.fitnesse.util.WikiPageUtil;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 public class WeightedWikiPageGroupFactory {
 
     private final WeightStrategy weightStrategy;
+    private final int parallelism;
 
     public WeightedWikiPageGroupFactory(final WeightStrategy weightStrategy) {
+        this(weightStrategy, 1);
+    }
+
+    /**
+     * @param weightStrategy WeightStrategy to resolve weights with. Must be thread-safe if parallelism is above 1.
+     * @param parallelism Maximum number of weights to resolve concurrently, 1 resolves weights on the calling thread.
+     */
+    public WeightedWikiPageGroupFactory(final WeightStrategy weightStrategy, final int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1: " + parallelism);
+        }
+
         this.weightStrategy = weightStrategy;
+        this.parallelism = parallelism;
     }
 
     public List<WeightedWikiPageGroup> build(final Map<SuiteSetUpTearDownPair, List<WikiPage>> map)
             throws TestsToRunContextGeneratorException {
 
+        final Map<String, Long> weights = parallelism > 1 && !map.isEmpty() ? getWeightsInParallel(map) : null;
+
         final List<WeightedWikiPageGroup> groups = new ArrayList<>();
 
         for (Map.Entry<SuiteSetUpTearDownPair, List<WikiPage>> entry : map.entrySet()) {
-            groups.add(build(entry.getKey(), entry.getValue()));
+            groups.add(build(entry.getKey(), entry.getValue(), weights));
         }
 
         return groups;
     }
 
-    private WeightedWikiPageGroup build(final SuiteSetUpTearDownPair pair, final List<WikiPage> pages)
-            throws TestsToRunContextGeneratorException {
+    private WeightedWikiPageGroup build(final SuiteSetUpTearDownPair pair, final List<WikiPage> pages,
+            final Map<String, Long> weights) throws TestsToRunContextGeneratorException {
 
-        final long suiteSetUpWeight = getWeight(pair.getSuiteSetUpPath());
-        final long suiteTearDownWeight = getWeight(pair.getSuiteTearDownPath());
+        final long suiteSetUpWeight = getWeight(pair.getSuiteSetUpPath(), weights);
+        final long suiteTearDownWeight = getWeight(pair.getSuiteTearDownPath(), weights);
 
         final List<WeightedWikiPage> weightedPages = new ArrayList<>(pages.size());
         long pagesWeight = 0;
 
         for (final WikiPage page : pages) {
-            final long pageWeight = getWeight(page);
+            final long pageWeight = getWeight(WikiPageUtil.getFullPathName(page), weights);
             weightedPages.add(new WeightedWikiPage(page, pageWeight));
             pagesWeight += pageWeight;
         }
@@ -50,12 +75,78 @@ public class WeightedWikiPageGroupFactory {
         return new WeightedWikiPageGroup(pair, weightedPages, suiteSetUpWeight, suiteTearDownWeight, pagesWeight);
     }
 
-    private long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
-        return weightStrategy.getWeight(pathName);
+    private long getWeight(final String pathName, final Map<String, Long> weights)
+            throws TestsToRunContextGeneratorException {
+
+        return weights == null ? weightStrategy.getWeight(pathName) : weights.get(pathName);
+    }
+
+    /**
+     * Resolves the weight of every distinct path name in the map on a bounded pool. The first failed lookup cancels
+     * all outstanding lookups and is rethrown.
+     */
+    private Map<String, Long> getWeightsInParallel(final Map<SuiteSetUpTearDownPair, List<WikiPage>> map)
+            throws TestsToRunContextGeneratorException {
+
+        final Map<String, Long> weights = new HashMap<>();
+
+        for (Map.Entry<SuiteSetUpTearDownPair, List<WikiPage>> entry : map.entrySet()) {
+            weights.put(entry.getKey().getSuiteSetUpPath(), null);
+            weights.put(entry.getKey().getSuiteTearDownPath(), null);
+
+            for (final WikiPage page : entry.getValue()) {
+                weights.put(WikiPageUtil.getFullPathName(page), null);
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, weights.size()),
+                daemonThreadFactory());
+        final CompletionService<Map.Entry<String, Long>> completionService = new ExecutorCompletionService<>(executor);
+
+        try {
+            for (final String pathName : weights.keySet()) {
+                completionService.submit(() -> new AbstractMap.SimpleImmutableEntry<>(pathName,
+                        weightStrategy.getWeight(pathName)));
+            }
+
+            for (int i = 0; i < weights.size(); ++i) {
+                final Map.Entry<String, Long> weight = completionService.take().get();
+                weights.put(weight.getKey(), weight.getValue());
+            }
+
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof TestsToRunContextGeneratorException) {
+                throw (TestsToRunContextGeneratorException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new TestsToRunContextGeneratorException("Unable to get weight", cause,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TestsToRunContextGeneratorException("Interrupted while getting weights", e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return weights;
     }
 
-    private long getWeight(final WikiPage page) throws TestsToRunContextGeneratorException {
-        return weightStrategy.getWeight(WikiPageUtil.getFullPathName(page));
+    private static ThreadFactory daemonThreadFactory() {
+        return runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("weight-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
 }
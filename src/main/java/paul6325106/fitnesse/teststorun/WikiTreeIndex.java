@@ -0,0 +1,633 @@
+package paul6325106.fitnesse.teststorun;
+
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.fs.FileBasedWikiPage;
+import paul6325106.fitnesse.util.PageMetadata;
+import paul6325106.fitnesse.util.PageMetadataLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact index of a wiki tree, built from the root page in a single crawl, so that planning can work on int page ids
+ * rather than repeatedly crawling WikiPages and reading their data.
+ *
+ * Pages are numbered breadth first from the root at 0, with siblings numbered contiguously in name order, so a child
+ * is found by binary search. Parents, depths, page type flags, tags and the closest SuiteSetUp and SuiteTearDown of
+ * each page are held in arrays indexed by id. The SuiteSetUp and SuiteTearDown follow
+ * PageCrawler.getClosestInheritedPage, so a page's own children are included.
+ *
+ * The index is refreshed by crawling the tree again, but page data is only re-read for file-based pages whose files
+ * have changed since they were indexed. It can also be written to a file and read back to avoid the first crawl.
+ * A refresh replaces the index contents atomically, so each lookup is safe to run concurrently with a refresh, but
+ * refreshing renumbers the pages and an id is only valid until the next refresh. Lookups which pass ids from one call
+ * to another should be made on a snapshot, which no refresh of this index affects.
+ */
+public class WikiTreeIndex {
+
+    public static final int NO_PAGE = -1;
+
+    private static final int MAGIC = 0x46525754; // FRWT
+    private static final int VERSION = 1;
+
+    private static final int PRUNED = 1 << 31;
+    private static final long UNKNOWN_STAMP = Long.MIN_VALUE;
+    private static final String[] NO_TAGS = new String[0];
+
+    private volatile Tree current;
+
+    /**
+     * Builds an index by crawling the tree below a root page.
+     * @param root Root page of the wiki.
+     */
+    public WikiTreeIndex(final WikiPage root) {
+        this.current = crawl(root, null);
+    }
+
+    private WikiTreeIndex(final Tree tree) {
+        this.current = tree;
+    }
+
+    /**
+     * Crawls the tree again, reusing the page data of file-based pages whose files are unchanged.
+     * @param root Root page of the wiki.
+     * @return Number of pages whose data was read.
+     */
+    public int refresh(final WikiPage root) {
+        final Tree refreshed = crawl(root, current);
+        current = refreshed;
+        return refreshed.read;
+    }
+
+    /**
+     * @return WikiTreeIndex of the current contents, whose ids stay valid however often this index is refreshed.
+     */
+    public WikiTreeIndex snapshot() {
+        return new WikiTreeIndex(current);
+    }
+
+    /**
+     * @return Number of pages in the index, including the root.
+     */
+    public int size() {
+        return current.size;
+    }
+
+    /**
+     * @param page WikiPage to find, from the same wiki as the index.
+     * @return Id of the WikiPage, or NO_PAGE if it is not in the index.
+     */
+    public int getId(final WikiPage page) {
+        final Tree tree = current;
+        final List<String> names = new ArrayList<>();
+
+        for (WikiPage ancestor = page; !ancestor.isRoot(); ancestor = ancestor.getParent()) {
+            names.add(ancestor.getName());
+        }
+
+        int id = 0;
+
+        for (int i = names.size() - 1; i >= 0 && id != NO_PAGE; --i) {
+            id = tree.getChild(id, names.get(i));
+        }
+
+        return id;
+    }
+
+    /**
+     * @param fullPathName Full path name of a page, e.g. SuitePage.TestPage, or an empty String for the root.
+     * @return Id of the page, or NO_PAGE if it is not in the index.
+     */
+    public int getId(final String fullPathName) {
+        final Tree tree = current;
+        int id = 0;
+        int start = 0;
+
+        while (start < fullPathName.length() && id != NO_PAGE) {
+            final int end = fullPathName.indexOf('.', start);
+            final int nameEnd = end < 0 ? fullPathName.length() : end;
+            id = tree.getChild(id, fullPathName.substring(start, nameEnd));
+            start = nameEnd + 1;
+        }
+
+        return id;
+    }
+
+    /**
+     * @param id Id of a page, or NO_PAGE.
+     * @return Full path name of the page, as WikiPageUtil.getFullPathName would give, or null for NO_PAGE.
+     */
+    public String getFullPathName(final int id) {
+        if (id == NO_PAGE) {
+            return null;
+        }
+
+        final Tree tree = current;
+        final String[] names = new String[tree.depths[id]];
+
+        for (int ancestor = id; ancestor != 0; ancestor = tree.parents[ancestor]) {
+            names[tree.depths[ancestor] - 1] = tree.names[ancestor];
+        }
+
+        return String.join(".", names);
+    }
+
+    /**
+     * @return Id of the page's parent, or NO_PAGE for the root.
+     */
+    public int getParent(final int id) {
+        return current.parents[id];
+    }
+
+    /**
+     * @return Depth of the page below the root, which is at depth 0.
+     */
+    public int getDepth(final int id) {
+        return current.depths[id];
+    }
+
+    /**
+     * @return true if the page is of the PageType, as WikiPageUtil.isPageType would give.
+     */
+    public boolean isPageType(final int id, final PageType type) {
+        return (current.flags[id] & getFlag(type)) != 0;
+    }
+
+    /**
+     * @return true if the page has the Prune property set.
+     */
+    public boolean isPruned(final int id) {
+        return (current.flags[id] & PRUNED) != 0;
+    }
+
+    /**
+     * @return Tags set in the page's Suites property.
+     */
+    public List<String> getTags(final int id) {
+        return Collections.unmodifiableList(Arrays.asList(current.tags[id]));
+    }
+
+    /**
+     * @return Id of the SuiteSetUp closest to the page, or NO_PAGE if there is none.
+     */
+    public int getSuiteSetUp(final int id) {
+        return current.suiteSetUps[id];
+    }
+
+    /**
+     * @return Id of the SuiteTearDown closest to the page, or NO_PAGE if there is none.
+     */
+    public int getSuiteTearDown(final int id) {
+        return current.suiteTearDowns[id];
+    }
+
+    /**
+     * @return Id of the lowest page that is an ancestor of, or the same as, both pages.
+     */
+    public int getLowestCommonAncestor(final int first, final int second) {
+        final Tree tree = current;
+        int a = first;
+        int b = second;
+
+        while (tree.depths[a] > tree.depths[b]) {
+            a = tree.parents[a];
+        }
+
+        while (tree.depths[b] > tree.depths[a]) {
+            b = tree.parents[b];
+        }
+
+        while (a != b) {
+            a = tree.parents[a];
+            b = tree.parents[b];
+        }
+
+        return a;
+    }
+
+    public void write(final File file) throws IOException {
+        write(new FileOutputStream(file));
+    }
+
+    /**
+     * Writes the index, gzipped. After a header (magic, version, size), each page is written in id order as its name,
+     * parent, first child, child count, flags, file stamp, tags, SuiteSetUp and SuiteTearDown.
+     * @param out Stream to write to, closed once written.
+     * @throws IOException when unable to write the index.
+     */
+    public void write(final OutputStream out) throws IOException {
+        final Tree tree = current;
+
+        try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out)))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(tree.size);
+
+            for (int id = 0; id < tree.size; ++id) {
+                data.writeUTF(tree.names[id]);
+                data.writeInt(tree.parents[id]);
+                data.writeInt(tree.firstChildren[id]);
+                data.writeInt(tree.childCounts[id]);
+                data.writeInt(tree.flags[id]);
+                data.writeLong(tree.stamps[id]);
+                data.writeInt(tree.tags[id].length);
+
+                for (final String tag : tree.tags[id]) {
+                    data.writeUTF(tag);
+                }
+
+                data.writeInt(tree.suiteSetUps[id]);
+                data.writeInt(tree.suiteTearDowns[id]);
+            }
+        }
+    }
+
+    public static WikiTreeIndex read(final File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    /**
+     * Reads an index written by write. Refresh the index against the wiki before relying on it, as pages may have
+     * changed since it was written.
+     * @param in Stream to read from, closed once read.
+     * @return WikiTreeIndex read.
+     * @throws IOException when unable to read the index, or the stream is not a supported index.
+     */
+    public static WikiTreeIndex read(final InputStream in) throws IOException {
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)))) {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not a wiki tree index");
+            }
+
+            final int version = data.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported wiki tree index version: " + version);
+            }
+
+            final int size = data.readInt();
+            if (size < 1) {
+                throw new IOException("Invalid wiki tree index size: " + size);
+            }
+
+            // the size and tag counts are untrusted, so arrays grow as records are read rather than being allocated
+            // up front, and a corrupt count fails at the end of the stream instead of exhausting memory
+            final Tree tree = new Tree(Math.min(size, 1024));
+
+            for (int id = 0; id < size; ++id) {
+                tree.ensureCapacity(id + 1);
+                tree.names[id] = data.readUTF();
+                tree.parents[id] = data.readInt();
+
+                // breadth first, so a parent always has a lower id, and only the root has none
+                if (id == 0 ? tree.parents[id] != NO_PAGE : tree.parents[id] < 0 || tree.parents[id] >= id) {
+                    throw new IOException("Invalid parent " + tree.parents[id] + " of page " + id);
+                }
+
+                tree.depths[id] = id == 0 ? 0 : tree.depths[tree.parents[id]] + 1;
+                tree.firstChildren[id] = data.readInt();
+                tree.childCounts[id] = data.readInt();
+
+                if (tree.firstChildren[id] < 0 || tree.childCounts[id] < 0
+                        || (long) tree.firstChildren[id] + tree.childCounts[id] > size) {
+                    throw new IOException("Invalid children " + tree.firstChildren[id] + "+" + tree.childCounts[id]
+                            + " of page " + id);
+                }
+
+                tree.flags[id] = data.readInt();
+                tree.stamps[id] = data.readLong();
+
+                final int tagCount = data.readInt();
+                if (tagCount < 0) {
+                    throw new IOException("Invalid tag count " + tagCount + " of page " + id);
+                }
+
+                final List<String> tags = new ArrayList<>();
+
+                for (int i = 0; i < tagCount; ++i) {
+                    tags.add(data.readUTF());
+                }
+
+                tree.tags[id] = tags.toArray(new String[tags.size()]);
+
+                tree.suiteSetUps[id] = readId(data, size);
+                tree.suiteTearDowns[id] = readId(data, size);
+            }
+
+            // children are found by parent, so each page's children must name it as their parent
+            for (int id = 0; id < size; ++id) {
+                for (int child = tree.firstChildren[id]; child < tree.firstChildren[id] + tree.childCounts[id];
+                        ++child) {
+
+                    if (tree.parents[child] != id) {
+                        throw new IOException("Invalid child " + child + " of page " + id);
+                    }
+                }
+            }
+
+            tree.size = size;
+            tree.trim();
+            return new WikiTreeIndex(tree);
+        } catch (final EOFException e) {
+            throw new IOException("Invalid wiki tree index: truncated", e);
+        }
+    }
+
+    private static int readId(final DataInputStream data, final int size) throws IOException {
+        final int id = data.readInt();
+
+        if (id < NO_PAGE || id >= size) {
+            throw new IOException("Invalid page id: " + id);
+        }
+
+        return id;
+    }
+
+    /**
+     * Crawls breadth first, holding only the pages not yet visited. Where a file-based page's stamp is known and
+     * unchanged, its data and children are copied from the previous tree, and its children are visited by file path
+     * alone. A WikiPage is only resolved for pages whose files have changed.
+     */
+    private static Tree crawl(final WikiPage root, final Tree previous) {
+        final Tree tree = new Tree(1024);
+        final List<WikiPage> pages = new ArrayList<>();
+        final List<File> paths = new ArrayList<>();
+        final List<Integer> previousIds = new ArrayList<>();
+
+        pages.add(root);
+        paths.add(getPath(root));
+        previousIds.add(previous == null ? NO_PAGE : 0);
+        tree.names[0] = root.getName();
+        tree.parents[0] = NO_PAGE;
+        tree.size = 1;
+
+        for (int id = 0; id < pages.size(); ++id) {
+            final int previousId = previousIds.get(id);
+            final File path = paths.get(id);
+            WikiPage page = pages.get(id);
+            pages.set(id, null);
+            paths.set(id, null);
+
+            final long stamp = getStamp(path);
+            tree.stamps[id] = stamp;
+
+            if (previousId != NO_PAGE && stamp != UNKNOWN_STAMP && stamp == previous.stamps[previousId]) {
+                tree.flags[id] = previous.flags[previousId];
+                tree.tags[id] = previous.tags[previousId];
+
+                final int firstChild = previous.firstChildren[previousId];
+                final int childCount = previous.childCounts[previousId];
+                tree.firstChildren[id] = tree.size;
+                tree.childCounts[id] = childCount;
+                tree.ensureCapacity(tree.size + childCount);
+
+                for (int previousChildId = firstChild; previousChildId < firstChild + childCount; ++previousChildId) {
+                    final String name = previous.names[previousChildId];
+                    tree.add(id, name);
+                    pages.add(null);
+                    paths.add(new File(path, name));
+                    previousIds.add(previousChildId);
+                }
+
+                continue;
+            }
+
+            if (page == null) {
+                page = resolve(root, tree, id);
+            }
+
+            final List<WikiPage> children = new ArrayList<>();
+
+            if (page != null) {
+                children.addAll(page.getChildren());
+            }
+
+            children.sort(Comparator.comparing(WikiPage::getName));
+
+            readData(tree, id, page);
+            ++tree.read;
+
+            tree.firstChildren[id] = tree.size;
+            tree.childCounts[id] = children.size();
+            tree.ensureCapacity(tree.size + children.size());
+
+            for (final WikiPage child : children) {
+                tree.add(id, child.getName());
+                pages.add(child);
+                paths.add(getPath(child));
+                previousIds.add(previousId == NO_PAGE ? NO_PAGE : previous.getChild(previousId, child.getName()));
+            }
+        }
+
+        // breadth first, so a parent is always resolved before its children
+        for (int id = 0; id < tree.size; ++id) {
+            final int parent = tree.parents[id];
+            final int suiteSetUp = tree.getChild(id, PageData.SUITE_SETUP_NAME);
+            final int suiteTearDown = tree.getChild(id, PageData.SUITE_TEARDOWN_NAME);
+
+            tree.suiteSetUps[id] = suiteSetUp != NO_PAGE || parent == NO_PAGE ? suiteSetUp : tree.suiteSetUps[parent];
+            tree.suiteTearDowns[id] =
+                    suiteTearDown != NO_PAGE || parent == NO_PAGE ? suiteTearDown : tree.suiteTearDowns[parent];
+        }
+
+        tree.trim();
+        return tree;
+    }
+
+    /**
+     * Gets the WikiPage for an id visited by file path alone, by name from the root.
+     * @return WikiPage, or null if it has been removed since its parent was visited.
+     */
+    private static WikiPage resolve(final WikiPage root, final Tree tree, final int id) {
+        final String[] names = new String[tree.depths[id]];
+
+        for (int ancestor = id; ancestor != 0; ancestor = tree.parents[ancestor]) {
+            names[tree.depths[ancestor] - 1] = tree.names[ancestor];
+        }
+
+        WikiPage page = root;
+
+        for (int i = 0; i < names.length && page != null; ++i) {
+            page = page.getChildPage(names[i]);
+        }
+
+        return page;
+    }
+
+    private static void readData(final Tree tree, final int id, final WikiPage page) {
+        if (page == null) {
+            tree.tags[id] = NO_TAGS;
+            return;
+        }
+
+        // each page is read at most once per crawl, so there is nothing for a loader's cache to save
+        final PageMetadata metadata = PageMetadataLoader.load(page);
+        int flags = 0;
+
+        for (final PageType type : PageType.values()) {
+            if (metadata.isPageType(type)) {
+                flags |= getFlag(type);
+            }
+        }
+
+        if (metadata.isPruned()) {
+            flags |= PRUNED;
+        }
+
+        tree.flags[id] = flags;
+        tree.tags[id] = getTags(metadata.getTags());
+    }
+
+    private static String[] getTags(final String suites) {
+        if (suites == null) {
+            return NO_TAGS;
+        }
+
+        final List<String> tags = new ArrayList<>();
+
+        for (final String tag : suites.split(",")) {
+            if (!tag.trim().isEmpty()) {
+                tags.add(tag.trim());
+            }
+        }
+
+        return tags.isEmpty() ? NO_TAGS : tags.toArray(new String[tags.size()]);
+    }
+
+    /**
+     * Latest modification time of the files that may back a file-based page, or UNKNOWN_STAMP for other pages and for
+     * file-based pages without files, whose data is always re-read.
+     */
+    private static long getStamp(final File path) {
+        if (path == null) {
+            return UNKNOWN_STAMP;
+        }
+
+        final long pathStamp = Math.max(path.lastModified(), new File(path.getPath() + ".wiki").lastModified());
+        final long fileStamp =
+                Math.max(new File(path, "content.txt").lastModified(), new File(path, "properties.xml").lastModified());
+        final long stamp = Math.max(pathStamp, fileStamp);
+
+        // pages held in memory have no files on disk
+        return stamp == 0 ? UNKNOWN_STAMP : stamp;
+    }
+
+    private static File getPath(final WikiPage page) {
+        return page instanceof FileBasedWikiPage ? ((FileBasedWikiPage) page).getFileSystemPath() : null;
+    }
+
+    private static int getFlag(final PageType type) {
+        return 1 << type.ordinal();
+    }
+
+    /**
+     * Arrays backing an index, replaced as a whole on refresh.
+     */
+    private static class Tree {
+
+        private int size;
+        private int read;
+
+        private String[] names;
+        private int[] parents;
+        private int[] depths;
+        private int[] firstChildren;
+        private int[] childCounts;
+        private int[] flags;
+        private long[] stamps;
+        private String[][] tags;
+        private int[] suiteSetUps;
+        private int[] suiteTearDowns;
+
+        private Tree(final int capacity) {
+            names = new String[capacity];
+            parents = new int[capacity];
+            depths = new int[capacity];
+            firstChildren = new int[capacity];
+            childCounts = new int[capacity];
+            flags = new int[capacity];
+            stamps = new long[capacity];
+            tags = new String[capacity][];
+            suiteSetUps = new int[capacity];
+            suiteTearDowns = new int[capacity];
+        }
+
+        private int capacity() {
+            return names.length;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > capacity()) {
+                resize(Math.max(capacity, capacity() * 2));
+            }
+        }
+
+        private void trim() {
+            if (size < capacity()) {
+                resize(size);
+            }
+        }
+
+        private void resize(final int capacity) {
+            names = Arrays.copyOf(names, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            childCounts = Arrays.copyOf(childCounts, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+            suiteSetUps = Arrays.copyOf(suiteSetUps, capacity);
+            suiteTearDowns = Arrays.copyOf(suiteTearDowns, capacity);
+        }
+
+        private void add(final int parent, final String name) {
+            final int id = size++;
+            names[id] = name;
+            parents[id] = parent;
+            depths[id] = depths[parent] + 1;
+        }
+
+        /**
+         * Binary search of a page's children, which are numbered contiguously in name order.
+         */
+        private int getChild(final int id, final String name) {
+            int low = firstChildren[id];
+            int high = low + childCounts[id] - 1;
+
+            while (low <= high) {
+                final int mid = (low + high) >>> 1;
+                final int compared = names[mid].compareTo(name);
+
+                if (compared < 0) {
+                    low = mid + 1;
+                } else if (compared > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+
+            return NO_PAGE;
+        }
+
+    }
+
+}
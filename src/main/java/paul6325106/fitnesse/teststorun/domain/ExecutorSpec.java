@@ -0,0 +1,60 @@
+package paul6325106.fitnesse.teststorun.domain;
+
+import java.util.Objects;
+
+/**
+ * An executor that TestsToRunContexts can be sized for. Speed is relative to the other executors, e.g. an agent with
+ * four times the cores of another might have a speed of 4 against the other's 1, so a weight of 4 takes it as long
+ * as a weight of 1 takes the other.
+ */
+public class ExecutorSpec {
+
+    private final String name;
+    private final double speed;
+
+    public ExecutorSpec(final String name, final double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Executor speed must be positive: " + name + " " + speed);
+        }
+
+        this.name = name;
+        this.speed = speed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        final ExecutorSpec that = (ExecutorSpec) o;
+
+        return Double.compare(that.speed, speed) == 0 &&
+                Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, speed);
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorSpec{" +
+                "name='" + name + '\'' +
+                ", speed=" + speed +
+                '}';
+    }
+
+}
@@ -8,10 +8,28 @@ public class TestsToRunContext {
 
     private final WikiPage requestedPage;
     private final List<WikiPage> testsToRun;
+    private final ExecutorSpec executor;
+    private final SuiteSetUpTearDownPair suiteSetUpTearDownPair;
+    private final long weight;
 
     public TestsToRunContext(final WikiPage requestedPage, final List<WikiPage> testsToRun) {
+        this(requestedPage, testsToRun, null);
+    }
+
+    public TestsToRunContext(final WikiPage requestedPage, final List<WikiPage> testsToRun,
+            final ExecutorSpec executor) {
+
+        this(requestedPage, testsToRun, executor, null, 0L);
+    }
+
+    public TestsToRunContext(final WikiPage requestedPage, final List<WikiPage> testsToRun,
+            final ExecutorSpec executor, final SuiteSetUpTearDownPair suiteSetUpTearDownPair, final long weight) {
+
         this.requestedPage = requestedPage;
         this.testsToRun = testsToRun;
+        this.executor = executor;
+        this.suiteSetUpTearDownPair = suiteSetUpTearDownPair;
+        this.weight = weight;
     }
 
     public WikiPage getRequestedPage() {
@@ -22,11 +40,35 @@ public class TestsToRunContext {
         return testsToRun;
     }
 
+    /**
+     * @return executor this context was sized for, or null if it was sized for interchangeable executors.
+     */
+    public ExecutorSpec getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return SuiteSetUp and SuiteTearDown combination shared by the tests to run, or null if unknown.
+     */
+    public SuiteSetUpTearDownPair getSuiteSetUpTearDownPair() {
+        return suiteSetUpTearDownPair;
+    }
+
+    /**
+     * @return predicted weight of the tests to run, including SuiteSetUp and SuiteTearDown, or 0 if unknown.
+     */
+    public long getWeight() {
+        return weight;
+    }
+
     @Override
     public String toString() {
         return "TestsToRunContext{" +
                 "requestedPage=" + requestedPage +
                 ", testsToRun=" + testsToRun +
+                ", executor=" + executor +
+                ", suiteSetUpTearDownPair=" + suiteSetUpTearDownPair +
+                ", weight=" + weight +
                 '}';
     }
 
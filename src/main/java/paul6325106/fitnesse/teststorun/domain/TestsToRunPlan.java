@@ -0,0 +1,43 @@
+package paul6325106.fitnesse.teststorun.domain;
+
+import java.util.List;
+
+/**
+ * TestsToRunContexts together with the executor count they were generated for and their predicted makespan.
+ */
+public class TestsToRunPlan {
+
+    private final List<TestsToRunContext> testsToRunContexts;
+    private final int count;
+    private final long predictedMakespan;
+
+    public TestsToRunPlan(final List<TestsToRunContext> testsToRunContexts, final int count,
+            final long predictedMakespan) {
+
+        this.testsToRunContexts = testsToRunContexts;
+        this.count = count;
+        this.predictedMakespan = predictedMakespan;
+    }
+
+    public List<TestsToRunContext> getTestsToRunContexts() {
+        return testsToRunContexts;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getPredictedMakespan() {
+        return predictedMakespan;
+    }
+
+    @Override
+    public String toString() {
+        return "TestsToRunPlan{" +
+                "testsToRunContexts=" + testsToRunContexts +
+                ", count=" + count +
+                ", predictedMakespan=" + predictedMakespan +
+                '}';
+    }
+
+}
@@ -3,5 +3,6 @@ package paul6325106.fitnesse.teststorun.exception;
 public enum TestsToRunContextGeneratorReason {
     UNABLE_TO_FIND_COMMON_ROOT,
     UNABLE_TO_FIND_SUITE_PAGE_AS_COMMON_ROOT,
-    UNABLE_TO_GET_WIKI_PAGE_WEIGHT
+    UNABLE_TO_GET_WIKI_PAGE_WEIGHT,
+    UNABLE_TO_FIND_WIKI_PAGE
 }
@@ -0,0 +1,53 @@
+package paul6325106.fitnesse.teststorun.order;
+
+import fitnesse.FitNesseContext;
+import fitnesse.reporting.history.PageHistory;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static paul6325106.fitnesse.util.WikiPageUtil.getFullPathName;
+
+/**
+ * Orders WikiPages by their historical probability of failure per unit of weight, highest first, so that failures are
+ * reported as early as possible for the time spent. The probability is estimated from the pass and fail counts in the
+ * test history directory, smoothed so that a page without history counts as one pass and one failure. Only the names
+ * of test result records are read, and they are read afresh for each page on every call, so history recorded after
+ * construction is taken into account.
+ */
+public class FailureRateOrderingStrategy implements OrderingStrategy {
+
+    private final File testHistoryDirectory;
+
+    public FailureRateOrderingStrategy(final FitNesseContext context) {
+        testHistoryDirectory = context.getTestHistoryDirectory();
+    }
+
+    @Override
+    public Comparator<WeightedWikiPage> getComparator(final List<WeightedWikiPage> pages) {
+        final Map<WeightedWikiPage, Double> scores = new IdentityHashMap<>();
+
+        for (final WeightedWikiPage page : pages) {
+            scores.put(page, getFailureProbability(getFullPathName(page.getWikiPage())) /
+                    Math.max(1L, page.getWeight()));
+        }
+
+        return Comparator.comparingDouble((WeightedWikiPage page) -> scores.getOrDefault(page, 0.0)).reversed();
+    }
+
+    double getFailureProbability(final String pathName) {
+        final File pageDirectory = new File(testHistoryDirectory, pathName);
+
+        if (!pageDirectory.isDirectory()) {
+            return 0.5;
+        }
+
+        final PageHistory pageHistory = new PageHistory(pageDirectory);
+        return (pageHistory.getFailures() + 1.0) / (pageHistory.size() + 2.0);
+    }
+
+}
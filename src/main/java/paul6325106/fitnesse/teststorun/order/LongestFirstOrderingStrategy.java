@@ -0,0 +1,19 @@
+package paul6325106.fitnesse.teststorun.order;
+
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders the heaviest WikiPages first, so that when contexts are scheduled dynamically the long pages are not left to
+ * the end, where they would stretch the tail.
+ */
+public class LongestFirstOrderingStrategy implements OrderingStrategy {
+
+    @Override
+    public Comparator<WeightedWikiPage> getComparator(final List<WeightedWikiPage> pages) {
+        return Comparator.comparingLong(WeightedWikiPage::getWeight).reversed();
+    }
+
+}
@@ -0,0 +1,24 @@
+package paul6325106.fitnesse.teststorun.order;
+
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Strategy for ordering the WikiPages within a TestsToRunContext. Ordering is applied after partitioning, so it never
+ * changes which pages share a SuiteSetUp and SuiteTearDown.
+ */
+public interface OrderingStrategy {
+
+    /**
+     * Creates a Comparator for a list of WikiPages, which may first look up anything it needs about those pages.
+     * @param pages WikiPages to be ordered, with weights.
+     * @return Comparator ordering the pages, earliest to run first.
+     * @throws TestsToRunContextGeneratorException when unable to look up details of the pages.
+     */
+    Comparator<WeightedWikiPage> getComparator(List<WeightedWikiPage> pages)
+            throws TestsToRunContextGeneratorException;
+
+}
@@ -0,0 +1,41 @@
+package paul6325106.fitnesse.teststorun.order;
+
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static paul6325106.fitnesse.util.WikiPageUtil.getFullPathName;
+
+/**
+ * Breaks ties left by another OrderingStrategy by full path name, so that pages which the primary strategy considers
+ * equal are kept next to their siblings, e.g. pages sharing fixtures or data set up by their parent suite.
+ */
+public class RelatedPagesOrderingStrategy implements OrderingStrategy {
+
+    private final OrderingStrategy primary;
+
+    /**
+     * @param primary OrderingStrategy to break ties for, or null to order by path name alone.
+     */
+    public RelatedPagesOrderingStrategy(final OrderingStrategy primary) {
+        this.primary = primary;
+    }
+
+    @Override
+    public Comparator<WeightedWikiPage> getComparator(final List<WeightedWikiPage> pages)
+            throws TestsToRunContextGeneratorException {
+
+        final Map<WeightedWikiPage, String> pathNames = new IdentityHashMap<>();
+        pages.forEach(page -> pathNames.put(page, getFullPathName(page.getWikiPage())));
+
+        final Comparator<WeightedWikiPage> byPathName =
+                Comparator.comparing(page -> pathNames.getOrDefault(page, ""));
+
+        return primary == null ? byPathName : primary.getComparator(pages).thenComparing(byPathName);
+    }
+
+}
@@ -0,0 +1,317 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Splits groups which are considered 'large' by the number of available executors using the multi-way
+ * Karmarkar-Karp largest differencing method. Where a few pages dominate the weight of a group this typically gives a
+ * lower maximum bin weight than LPT, which commits the heaviest pages to bins before the light pages that could have
+ * balanced them are known.
+ *
+ * Optionally, the differencing result is refined by a complete greedy search, which keeps the best assignment found
+ * within a time budget and, optionally, a limit on the number of search steps. The search stops early once it reaches
+ * the lower bound of max(total / count, heaviest page).
+ *
+ * As with NaivePartitionStrategy, split groups follow the groups which were left whole.
+ */
+public class DifferencingPartitionStrategy implements PartitionStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(DifferencingPartitionStrategy.class);
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final long large;
+    private final long searchBudgetNanos;
+    private final long searchStepLimit;
+
+    /**
+     * Differencing only, without any search.
+     */
+    public DifferencingPartitionStrategy(final long large) {
+        this(large, Duration.ZERO);
+    }
+
+    /**
+     * @param large Groups with a total weight over this are split.
+     * @param searchBudget Time to spend searching for a better assignment, per split group. Zero disables the search.
+     */
+    public DifferencingPartitionStrategy(final long large, final Duration searchBudget) {
+        this(large, searchBudget, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param large Groups with a total weight over this are split.
+     * @param searchBudget Time to spend searching for a better assignment, per split group. Zero disables the search.
+     * @param searchStepLimit Maximum number of search steps per split group, for a result which does not depend on
+     * the speed of the machine when the time budget is generous.
+     */
+    public DifferencingPartitionStrategy(final long large, final Duration searchBudget, final long searchStepLimit) {
+        if (searchStepLimit < 1) {
+            throw new IllegalArgumentException("searchStepLimit must be at least 1: " + searchStepLimit);
+        }
+
+        this.large = large;
+        this.searchBudgetNanos = searchBudget.toNanos();
+        this.searchStepLimit = searchStepLimit;
+    }
+
+    @Override
+    public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups, final int count) {
+        groups.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+
+        final List<WeightedWikiPageGroup> partitioned = new ArrayList<>(groups.size() + count);
+        final List<WeightedWikiPageGroup> split = new ArrayList<>();
+
+        for (final WeightedWikiPageGroup group : groups) {
+            if (group.getTotalWeight() > large && !group.getWikiPages().isEmpty()) {
+                split.addAll(split(group, count));
+            } else {
+                partitioned.add(group);
+            }
+        }
+
+        partitioned.addAll(split);
+        return partitioned;
+    }
+
+    private Collection<WeightedWikiPageGroup> split(final WeightedWikiPageGroup group, final int count) {
+        final List<WeightedWikiPage> pages = new ArrayList<>(group.getWikiPages());
+        pages.sort(Comparator.comparingLong(WeightedWikiPage::getWeight).reversed());
+
+        final int bins = Math.max(1, Math.min(count, pages.size()));
+        final long[] weights = pages.stream().mapToLong(WeightedWikiPage::getWeight).toArray();
+
+        final int[] assignment = difference(weights, bins);
+
+        if (searchBudgetNanos > 0) {
+            search(weights, bins, assignment);
+        }
+
+        final List<List<WeightedWikiPage>> binPages = new ArrayList<>(bins);
+        final long[] totals = new long[bins];
+
+        for (int i = 0; i < bins; ++i) {
+            binPages.add(new ArrayList<>(pages.size() / bins + 1));
+        }
+
+        for (int i = 0; i < weights.length; ++i) {
+            binPages.get(assignment[i]).add(pages.get(i));
+            totals[assignment[i]] += weights[i];
+        }
+
+        final List<WeightedWikiPageGroup> split = new ArrayList<>(bins);
+
+        for (int i = 0; i < bins; ++i) {
+            split.add(new WeightedWikiPageGroup(group.getSuiteSetUpTearDownPair(), binPages.get(i),
+                    group.getSetUpWeight(), group.getTearDownWeight(), totals[i]));
+        }
+
+        split.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+        return split;
+    }
+
+    /**
+     * A partial partition of some of the pages into bins. Bin members are kept as linked lists of page indices
+     * threaded through a shared next array, so two partial partitions are combined without copying members.
+     */
+    private static class Partial {
+
+        private final long[] sums;
+        private final int[] heads;
+        private final int[] tails;
+
+        Partial(final int bins) {
+            sums = new long[bins];
+            heads = new int[bins];
+            tails = new int[bins];
+        }
+
+        long getDifference() {
+            return sums[0] - sums[sums.length - 1];
+        }
+
+    }
+
+    /**
+     * Multi-way largest differencing. Every page starts as a partial partition with the page in one bin and the
+     * others empty. The two partial partitions with the largest differences are repeatedly combined, pairing the
+     * heaviest bins of one with the lightest bins of the other, until a single partition remains.
+     * @return bin index for each page.
+     */
+    private static int[] difference(final long[] weights, final int bins) {
+        final int[] next = new int[weights.length];
+        final PriorityQueue<Partial> queue = new PriorityQueue<>(Math.max(1, weights.length),
+                Comparator.comparingLong(Partial::getDifference).reversed());
+
+        for (int i = 0; i < weights.length; ++i) {
+            final Partial partial = new Partial(bins);
+            Arrays.fill(partial.heads, -1);
+            Arrays.fill(partial.tails, -1);
+            partial.sums[0] = weights[i];
+            partial.heads[0] = i;
+            partial.tails[0] = i;
+            next[i] = -1;
+            queue.add(partial);
+        }
+
+        while (queue.size() > 1) {
+            queue.add(combine(queue.poll(), queue.poll(), next));
+        }
+
+        final int[] assignment = new int[weights.length];
+        final Partial partition = queue.poll();
+
+        for (int bin = 0; bin < bins; ++bin) {
+            for (int page = partition.heads[bin]; page != -1; page = next[page]) {
+                assignment[page] = bin;
+            }
+        }
+
+        return assignment;
+    }
+
+    /**
+     * Combines the heaviest bin of a with the lightest of b, and so on. Both are sorted heaviest first.
+     */
+    private static Partial combine(final Partial a, final Partial b, final int[] next) {
+        final int bins = a.sums.length;
+        final Partial combined = new Partial(bins);
+        final Integer[] order = new Integer[bins];
+
+        final long[] sums = new long[bins];
+        final int[] heads = new int[bins];
+        final int[] tails = new int[bins];
+
+        for (int i = 0; i < bins; ++i) {
+            final int j = bins - 1 - i;
+            sums[i] = a.sums[i] + b.sums[j];
+
+            if (a.heads[i] == -1) {
+                heads[i] = b.heads[j];
+                tails[i] = b.tails[j];
+            } else {
+                heads[i] = a.heads[i];
+                tails[i] = b.heads[j] == -1 ? a.tails[i] : b.tails[j];
+
+                if (b.heads[j] != -1) {
+                    next[a.tails[i]] = b.heads[j];
+                }
+            }
+
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (x, y) -> Long.compare(sums[y], sums[x]));
+
+        for (int i = 0; i < bins; ++i) {
+            combined.sums[i] = sums[order[i]];
+            combined.heads[i] = heads[order[i]];
+            combined.tails[i] = tails[order[i]];
+        }
+
+        return combined;
+    }
+
+    /**
+     * Complete greedy search, depth first over pages heaviest first, trying bins lightest first. Bins with equal sums
+     * are interchangeable so only one of them is tried, and a branch is abandoned as soon as it cannot beat the best
+     * assignment found so far. Improves on the given assignment in place.
+     */
+    private void search(final long[] weights, final int bins, final int[] assignment) {
+        final int pages = weights.length;
+        final long[] sums = new long[bins];
+        long total = 0;
+
+        for (int i = 0; i < pages; ++i) {
+            sums[assignment[i]] += weights[i];
+            total += weights[i];
+        }
+
+        long best = max(sums);
+        final long initial = best;
+        final long lowerBound = Math.max((total + bins - 1) / bins, weights[0]);
+
+        Arrays.fill(sums, 0);
+        final int[] choice = new int[pages];
+        Arrays.fill(choice, -1);
+
+        final long deadline = System.nanoTime() + searchBudgetNanos;
+        long nodes = 0;
+        int depth = 0;
+
+        while (depth >= 0 && best > lowerBound) {
+            if (++nodes > searchStepLimit
+                    || nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+                break;
+            }
+
+            final long weight = weights[depth];
+            long previous = Long.MIN_VALUE;
+
+            if (choice[depth] != -1) {
+                sums[choice[depth]] -= weight;
+                previous = sums[choice[depth]];
+            }
+
+            final int bin = nextBin(sums, previous);
+
+            if (bin == -1 || sums[bin] + weight >= best) {
+                // bins are tried lightest first, so no remaining bin can do better
+                choice[depth] = -1;
+                --depth;
+                continue;
+            }
+
+            sums[bin] += weight;
+            choice[depth] = bin;
+
+            if (depth == pages - 1) {
+                best = max(sums);
+                System.arraycopy(choice, 0, assignment, 0, pages);
+            } else {
+                ++depth;
+            }
+        }
+
+        if (best < initial) {
+            LOGGER.debug("Search improved maximum bin weight from " + initial + " to " + best);
+        }
+    }
+
+    /**
+     * @return the lightest bin with a sum strictly greater than previous, or -1 if there is none.
+     */
+    private static int nextBin(final long[] sums, final long previous) {
+        int bin = -1;
+
+        for (int i = 0; i < sums.length; ++i) {
+            if (sums[i] > previous && (bin == -1 || sums[i] < sums[bin])) {
+                bin = i;
+            }
+        }
+
+        return bin;
+    }
+
+    private static long max(final long[] sums) {
+        long max = Long.MIN_VALUE;
+
+        for (final long sum : sums) {
+            max = Math.max(max, sum);
+        }
+
+        return max;
+    }
+
+}
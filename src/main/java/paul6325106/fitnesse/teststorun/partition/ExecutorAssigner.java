@@ -0,0 +1,134 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns groups to executors of differing speeds, heaviest group first, each to the executor on which it would
+ * complete earliest given the groups already assigned to it. An executor runs its groups one after another, so groups
+ * of the same SuiteSetUp/SuiteTearDown combination which land on the same executor are merged, to run the SuiteSetUp
+ * and SuiteTearDown once rather than once per group.
+ */
+final class ExecutorAssigner {
+
+    private ExecutorAssigner() {
+    }
+
+    /**
+     * @return number of groups to partition into so that faster executors can take proportionally more groups, i.e.
+     * the total speed in units of the slowest executor, and at least one group per executor.
+     */
+    static int getCount(final List<ExecutorSpec> executors) {
+        final double slowest = executors.stream().mapToDouble(ExecutorSpec::getSpeed).min().orElse(1.0);
+        final double total = executors.stream().mapToDouble(ExecutorSpec::getSpeed).sum();
+        return Math.max(executors.size(), (int) Math.round(total / slowest));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are no executors, or two executors share a name.
+     */
+    static void checkExecutors(final List<ExecutorSpec> executors) {
+        if (executors.isEmpty()) {
+            throw new IllegalArgumentException("At least one executor is required");
+        }
+
+        final Set<String> names = new HashSet<>();
+
+        for (final ExecutorSpec executor : executors) {
+            if (!names.add(executor.getName())) {
+                throw new IllegalArgumentException("Executor names must be distinct: " + executor.getName());
+            }
+        }
+    }
+
+    /**
+     * @return groups by executor, in the order of the executors given. Every executor is present, possibly with no
+     * groups. Each executor has at most one group per SuiteSetUp/SuiteTearDown combination, heaviest first.
+     * @throws IllegalArgumentException if there are no executors, or two executors share a name.
+     */
+    static Map<ExecutorSpec, List<WeightedWikiPageGroup>> assign(final Collection<WeightedWikiPageGroup> groups,
+            final List<ExecutorSpec> executors) {
+
+        checkExecutors(executors);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> assigned = new LinkedHashMap<>();
+        executors.forEach(executor -> assigned.put(executor, new ArrayList<>()));
+
+        final double[] completionTimes = new double[executors.size()];
+
+        final List<WeightedWikiPageGroup> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+
+        for (final WeightedWikiPageGroup group : sorted) {
+            int earliest = 0;
+            double earliestTime = Double.MAX_VALUE;
+
+            for (int i = 0; i < completionTimes.length; ++i) {
+                final double time = completionTimes[i] + group.getTotalWeight() / executors.get(i).getSpeed();
+
+                if (time < earliestTime) {
+                    earliest = i;
+                    earliestTime = time;
+                }
+            }
+
+            completionTimes[earliest] = earliestTime;
+            assigned.get(executors.get(earliest)).add(group);
+        }
+
+        assigned.replaceAll((executor, executorGroups) -> merge(executorGroups));
+        return assigned;
+    }
+
+    /**
+     * Merges groups of the same SuiteSetUp/SuiteTearDown combination, keeping the order of their first occurrence.
+     * @return merged groups, heaviest first.
+     */
+    private static List<WeightedWikiPageGroup> merge(final List<WeightedWikiPageGroup> groups) {
+        final Map<SuiteSetUpTearDownPair, List<WeightedWikiPageGroup>> byPair = new LinkedHashMap<>();
+
+        for (final WeightedWikiPageGroup group : groups) {
+            byPair.computeIfAbsent(group.getSuiteSetUpTearDownPair(), key -> new ArrayList<>()).add(group);
+        }
+
+        if (byPair.size() == groups.size()) {
+            return groups;
+        }
+
+        final List<WeightedWikiPageGroup> merged = new ArrayList<>(byPair.size());
+
+        for (final List<WeightedWikiPageGroup> pieces : byPair.values()) {
+            if (pieces.size() == 1) {
+                merged.add(pieces.get(0));
+                continue;
+            }
+
+            final List<WeightedWikiPage> pages = new ArrayList<>();
+            long pagesWeight = 0;
+
+            for (final WeightedWikiPageGroup piece : pieces) {
+                pages.addAll(piece.getWikiPages());
+                pagesWeight += piece.getPagesWeight();
+            }
+
+            final WeightedWikiPageGroup first = pieces.get(0);
+            merged.add(new WeightedWikiPageGroup(first.getSuiteSetUpTearDownPair(), pages, first.getSetUpWeight(),
+                    first.getTearDownWeight(), pagesWeight));
+        }
+
+        merged.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+        return merged;
+    }
+
+}
@@ -0,0 +1,138 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Longest processing time first. Behaves as NaivePartitionStrategy, splitting groups which are considered 'large' by
+ * the number of available executors, placing each page, heaviest first, into the lightest bin. Bin totals are kept in
+ * a binary min-heap rather than recomputed for every placement, so splitting n pages into k bins is O(n log k).
+ *
+ * Ties between bins of equal weight go to the earliest bin, as with NaivePartitionStrategy, so both strategies produce
+ * the same groups in the same order.
+ */
+public class LptPartitionStrategy implements PartitionStrategy {
+
+    private final long large;
+
+    public LptPartitionStrategy(final long large) {
+        this.large = large;
+    }
+
+    @Override
+    public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups, final int count) {
+        groups.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+
+        final List<WeightedWikiPageGroup> partitioned = new ArrayList<>(groups.size() + count);
+        final List<WeightedWikiPageGroup> split = new ArrayList<>();
+
+        for (final WeightedWikiPageGroup group : groups) {
+            if (group.getTotalWeight() > large && !group.getWikiPages().isEmpty()) {
+                split.addAll(split(group, count));
+            } else {
+                partitioned.add(group);
+            }
+        }
+
+        // split groups follow the groups which were left whole
+        partitioned.addAll(split);
+        return partitioned;
+    }
+
+    /**
+     * Splits a group into at most count groups, each with the group's SuiteSetUp and SuiteTearDown.
+     */
+    static List<WeightedWikiPageGroup> split(final WeightedWikiPageGroup group, final int count) {
+        final List<WeightedWikiPage> pages = new ArrayList<>(group.getWikiPages());
+        pages.sort(Comparator.comparingLong(WeightedWikiPage::getWeight).reversed());
+
+        final int min = Math.max(1, Math.min(count, pages.size()));
+        final BinHeap heap = new BinHeap(min);
+
+        final List<List<WeightedWikiPage>> bins = new ArrayList<>(min);
+        for (int i = 0; i < min; ++i) {
+            bins.add(new ArrayList<>(pages.size() / min + 1));
+        }
+
+        for (final WeightedWikiPage page : pages) {
+            bins.get(heap.addToLightest(page.getWeight())).add(page);
+        }
+
+        final List<WeightedWikiPageGroup> split = new ArrayList<>(min);
+
+        for (int i = 0; i < min; ++i) {
+            split.add(new WeightedWikiPageGroup(group.getSuiteSetUpTearDownPair(), bins.get(i),
+                    group.getSetUpWeight(), group.getTearDownWeight(), heap.getTotal(i)));
+        }
+
+        return split;
+    }
+
+    /**
+     * Min-heap of bin indices ordered by bin total then bin index. Only the lightest bin ever changes, and only gets
+     * heavier, so each placement is a single sift down from the root.
+     */
+    private static class BinHeap {
+
+        private final long[] totals;
+        private final int[] heap;
+
+        BinHeap(final int size) {
+            totals = new long[size];
+            heap = new int[size];
+
+            // all totals are zero, so ascending indices already satisfy the heap property
+            for (int i = 0; i < size; ++i) {
+                heap[i] = i;
+            }
+        }
+
+        int addToLightest(final long weight) {
+            final int bin = heap[0];
+            totals[bin] += weight;
+            siftDown();
+            return bin;
+        }
+
+        long getTotal(final int bin) {
+            return totals[bin];
+        }
+
+        private void siftDown() {
+            final int bin = heap[0];
+            int position = 0;
+
+            while (true) {
+                int child = 2 * position + 1;
+
+                if (child >= heap.length) {
+                    break;
+                }
+
+                if (child + 1 < heap.length && lighter(heap[child + 1], heap[child])) {
+                    ++child;
+                }
+
+                if (!lighter(heap[child], bin)) {
+                    break;
+                }
+
+                heap[position] = heap[child];
+                position = child;
+            }
+
+            heap[position] = bin;
+        }
+
+        private boolean lighter(final int a, final int b) {
+            return totals[a] < totals[b] || (totals[a] == totals[b] && a < b);
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.Collection;
+import java.util.PriorityQueue;
+
+/**
+ * Predicts the makespan of groups of WikiPages, i.e. the total weight of the busiest executor, when the groups are
+ * scheduled longest first, each onto the least loaded of a number of identical executors. Every group's weight
+ * includes its SuiteSetUp and SuiteTearDown, so duplicated setup is accounted for.
+ */
+public final class MakespanEstimator {
+
+    private MakespanEstimator() {
+    }
+
+    /**
+     * @param groups Groups of WikiPages to schedule.
+     * @param count Number of executors.
+     * @return greatest executor load.
+     */
+    public static long getMakespan(final Collection<WeightedWikiPageGroup> groups, final int count) {
+        final long[] weights = groups.stream().mapToLong(WeightedWikiPageGroup::getTotalWeight).sorted().toArray();
+
+        final int executors = Math.max(1, count);
+        final PriorityQueue<Long> loads = new PriorityQueue<>(executors);
+
+        for (int i = 0; i < executors; ++i) {
+            loads.add(0L);
+        }
+
+        long makespan = 0L;
+
+        // heaviest first
+        for (int i = weights.length - 1; i >= 0; --i) {
+            final long load = loads.poll() + weights[i];
+            loads.add(load);
+            makespan = Math.max(makespan, load);
+        }
+
+        return makespan;
+    }
+
+}
@@ -24,7 +24,7 @@ public class NaivePartitionStrategy implements PartitionStrategy {
     public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups, final int count) {
         groups.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
 
-        for (final WeightedWikiPageGroup group : groups) {
+        for (final WeightedWikiPageGroup group : new ArrayList<>(groups)) {
             if (group.getTotalWeight() > large) {
                 groups.remove(group);
                 groups.addAll(split(group, count));
@@ -39,6 +39,10 @@ public class NaivePartitionStrategy implements PartitionStrategy {
         final int min = Math.min(count, group.getWikiPages().size());
 
         final List<List<WeightedWikiPage>> bins = new ArrayList<>(min);
+        for (int i = 0; i < min; ++i) {
+            bins.add(new ArrayList<>());
+        }
+
         final List<WeightedWikiPage> pages = new ArrayList<>(group.getWikiPages());
         pages.sort(Comparator.comparingLong(WeightedWikiPage::getWeight).reversed());
         pages.forEach(page -> getSmallestBin(bins).add(page));
@@ -1,9 +1,11 @@
 package paul6325106.fitnesse.teststorun.partition;
 
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Strategy for partitioning groups of WikiPages. WikiPages are initially split into groups by their SuiteSetUp and
@@ -21,4 +23,21 @@ public interface PartitionStrategy {
      */
     Collection<WeightedWikiPageGroup> partition(List<WeightedWikiPageGroup> groups, int count);
 
+    /**
+     * Reconfigures groups of WikiPages for executors of differing speeds, balancing predicted completion time, i.e.
+     * weight divided by speed, rather than weight. By default, groups are partitioned into as many sets as the total
+     * speed in units of the slowest executor, and the sets are assigned heaviest first to the executor on which each
+     * would complete earliest. Sets of the same SuiteSetUp/SuiteTearDown combination assigned to the same executor
+     * are then merged.
+     * @param groups Groups of WikiPages, by SuiteSetUp/SuiteTearDown combination, with weights.
+     * @param executors Executors to partition for, at least one, with distinct names.
+     * @return Reconfigured groups of WikiPages by executor, in the order of the executors given.
+     * @throws IllegalArgumentException if there are no executors, or two executors share a name.
+     */
+    default Map<ExecutorSpec, List<WeightedWikiPageGroup>> partition(final List<WeightedWikiPageGroup> groups,
+            final List<ExecutorSpec> executors) {
+
+        return ExecutorAssigner.assign(partition(groups, ExecutorAssigner.getCount(executors)), executors);
+    }
+
 }
@@ -0,0 +1,314 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Improves the output of another PartitionStrategy by local search. Pages are moved, or swapped one for one, between
+ * groups with the same SuiteSetUp and SuiteTearDown, taking from the bin which completes last, while doing so reduces
+ * the predicted makespan. For the count based API each group is a bin, for the executor based API each executor is a
+ * bin, with its groups' weights divided by its speed. A move never empties a group, so no setup is added or removed.
+ *
+ * The search stops when no move or swap improves the makespan, or at the iteration or time limit, whichever is first.
+ * The time limit is also checked while searching for a move, in which case the best move found so far is made.
+ * The makespans before and after the last refinement are logged and available from getters.
+ */
+public class RefiningPartitionStrategy implements PartitionStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(RefiningPartitionStrategy.class);
+
+    private final PartitionStrategy delegate;
+    private final int maxIterations;
+    private final long timeLimitNanos;
+
+    private volatile double initialMakespan;
+    private volatile double refinedMakespan;
+
+    /**
+     * @param delegate PartitionStrategy whose output to refine.
+     * @param maxIterations Maximum number of moves and swaps to make.
+     * @param timeLimit Maximum time to spend refining.
+     */
+    public RefiningPartitionStrategy(final PartitionStrategy delegate, final int maxIterations,
+            final Duration timeLimit) {
+
+        this.delegate = delegate;
+        this.maxIterations = maxIterations;
+        this.timeLimitNanos = timeLimit.toNanos();
+    }
+
+    @Override
+    public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups, final int count) {
+        final List<Group> states = new ArrayList<>();
+
+        for (final WeightedWikiPageGroup group : delegate.partition(groups, count)) {
+            states.add(new Group(group, new Bin(1.0)));
+        }
+
+        refine(states);
+
+        final List<WeightedWikiPageGroup> refined = new ArrayList<>(states.size());
+        states.forEach(state -> refined.add(state.build()));
+        return refined;
+    }
+
+    @Override
+    public Map<ExecutorSpec, List<WeightedWikiPageGroup>> partition(final List<WeightedWikiPageGroup> groups,
+            final List<ExecutorSpec> executors) {
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned = delegate.partition(groups, executors);
+        final Map<ExecutorSpec, List<Group>> states = new LinkedHashMap<>();
+        final List<Group> all = new ArrayList<>();
+
+        for (final Map.Entry<ExecutorSpec, List<WeightedWikiPageGroup>> entry : partitioned.entrySet()) {
+            final Bin bin = new Bin(entry.getKey().getSpeed());
+            final List<Group> executorStates = new ArrayList<>(entry.getValue().size());
+
+            for (final WeightedWikiPageGroup group : entry.getValue()) {
+                executorStates.add(new Group(group, bin));
+            }
+
+            states.put(entry.getKey(), executorStates);
+            all.addAll(executorStates);
+        }
+
+        refine(all);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> refined = new LinkedHashMap<>();
+        states.forEach((executor, executorStates) -> {
+            final List<WeightedWikiPageGroup> executorGroups = new ArrayList<>(executorStates.size());
+            executorStates.forEach(state -> executorGroups.add(state.build()));
+            refined.put(executor, executorGroups);
+        });
+        return refined;
+    }
+
+    /**
+     * @return predicted makespan of the delegate's output in the last partition, in weight per unit of speed.
+     */
+    public double getInitialMakespan() {
+        return initialMakespan;
+    }
+
+    /**
+     * @return predicted makespan after refinement in the last partition, in weight per unit of speed.
+     */
+    public double getRefinedMakespan() {
+        return refinedMakespan;
+    }
+
+    private void refine(final List<Group> groups) {
+        if (groups.isEmpty()) {
+            initialMakespan = 0.0;
+            refinedMakespan = 0.0;
+            return;
+        }
+
+        final Map<SuiteSetUpTearDownPair, List<Group>> groupsByPair = new HashMap<>();
+        final List<Bin> bins = new ArrayList<>();
+
+        for (final Group group : groups) {
+            groupsByPair.computeIfAbsent(group.pair, pair -> new ArrayList<>()).add(group);
+            if (!bins.contains(group.bin)) {
+                bins.add(group.bin);
+            }
+        }
+
+        final double initial = getMakespan(bins, null, null);
+        final long deadline = System.nanoTime() + timeLimitNanos;
+        int iterations = 0;
+
+        while (iterations < maxIterations && System.nanoTime() - deadline < 0) {
+            if (!improve(bins, groupsByPair, deadline)) {
+                break;
+            }
+            ++iterations;
+        }
+
+        final double refined = getMakespan(bins, null, null);
+
+        initialMakespan = initial;
+        refinedMakespan = refined;
+
+        LOGGER.info("Refined makespan from " + initial + " to " + refined + " in " + iterations + " iterations");
+    }
+
+    /**
+     * Makes the single move or swap out of the latest bin which most reduces the makespan, or the best found by the
+     * deadline.
+     * @return true if an improving move or swap was found.
+     */
+    private boolean improve(final List<Bin> bins, final Map<SuiteSetUpTearDownPair, List<Group>> groupsByPair,
+            final long deadline) {
+
+        Bin latest = bins.get(0);
+        for (final Bin bin : bins) {
+            if (bin.getTime() > latest.getTime()) {
+                latest = bin;
+            }
+        }
+
+        double best = latest.getTime();
+        Group bestFrom = null;
+        Group bestTo = null;
+        WeightedWikiPage bestOut = null;
+        WeightedWikiPage bestIn = null;
+
+        search:
+        for (final List<Group> compatible : groupsByPair.values()) {
+            for (final Group from : compatible) {
+                if (from.bin != latest) {
+                    continue;
+                }
+
+                for (final Group to : compatible) {
+                    if (to.bin == latest) {
+                        continue;
+                    }
+
+                    final Bin target = to.bin;
+                    final double others = getMakespan(bins, latest, target);
+
+                    for (final WeightedWikiPage out : from.pages) {
+                        if (System.nanoTime() - deadline >= 0) {
+                            break search;
+                        }
+
+                        // move
+                        if (from.pages.size() > 1) {
+                            final double candidate = Math.max(others, Math.max(
+                                    latest.getTime(-out.getWeight()), target.getTime(out.getWeight())));
+
+                            if (candidate < best) {
+                                best = candidate;
+                                bestFrom = from;
+                                bestTo = to;
+                                bestOut = out;
+                                bestIn = null;
+                            }
+                        }
+
+                        // swap for a lighter page
+                        for (final WeightedWikiPage in : to.pages) {
+                            final long delta = out.getWeight() - in.getWeight();
+
+                            if (delta <= 0) {
+                                continue;
+                            }
+
+                            final double candidate = Math.max(others, Math.max(
+                                    latest.getTime(-delta), target.getTime(delta)));
+
+                            if (candidate < best) {
+                                best = candidate;
+                                bestFrom = from;
+                                bestTo = to;
+                                bestOut = out;
+                                bestIn = in;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (bestOut == null) {
+            return false;
+        }
+
+        bestFrom.remove(bestOut);
+        bestTo.add(bestOut);
+
+        if (bestIn != null) {
+            bestTo.remove(bestIn);
+            bestFrom.add(bestIn);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return latest completion time of all bins, excluding up to two bins.
+     */
+    private static double getMakespan(final List<Bin> bins, final Bin excludeOne, final Bin excludeTwo) {
+        double makespan = 0.0;
+
+        for (final Bin bin : bins) {
+            if (bin != excludeOne && bin != excludeTwo) {
+                makespan = Math.max(makespan, bin.getTime());
+            }
+        }
+
+        return makespan;
+    }
+
+    private static class Bin {
+
+        private final double speed;
+        private long weight;
+
+        Bin(final double speed) {
+            this.speed = speed;
+        }
+
+        double getTime() {
+            return weight / speed;
+        }
+
+        double getTime(final long delta) {
+            return (weight + delta) / speed;
+        }
+
+    }
+
+    private static class Group {
+
+        private final SuiteSetUpTearDownPair pair;
+        private final long setUpWeight;
+        private final long tearDownWeight;
+        private final List<WeightedWikiPage> pages;
+        private final Bin bin;
+        private long pagesWeight;
+
+        Group(final WeightedWikiPageGroup group, final Bin bin) {
+            this.pair = group.getSuiteSetUpTearDownPair();
+            this.setUpWeight = group.getSetUpWeight();
+            this.tearDownWeight = group.getTearDownWeight();
+            this.pages = new ArrayList<>(group.getWikiPages());
+            this.pagesWeight = group.getPagesWeight();
+            this.bin = bin;
+
+            bin.weight += group.getTotalWeight();
+        }
+
+        void add(final WeightedWikiPage page) {
+            pages.add(page);
+            pagesWeight += page.getWeight();
+            bin.weight += page.getWeight();
+        }
+
+        void remove(final WeightedWikiPage page) {
+            pages.remove(page);
+            pagesWeight -= page.getWeight();
+            bin.weight -= page.getWeight();
+        }
+
+        WeightedWikiPageGroup build() {
+            return new WeightedWikiPageGroup(pair, pages, setUpWeight, tearDownWeight, pagesWeight);
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses how many pieces to split each group into by minimising the predicted makespan, i.e. the total weight of the
+ * busiest executor when all pieces are scheduled longest first across the available executors. Every piece repeats
+ * its group's SuiteSetUp and SuiteTearDown, so a group is only split further where the extra parallelism saves more
+ * than the duplicated setup costs. No 'large' threshold is needed.
+ *
+ * Starting from every group whole, the group with the heaviest piece whose splitting into one more piece reduces the
+ * makespan is split again, until no further split reduces the makespan. Where several groups tie for the heaviest
+ * piece, splitting any one of them alone cannot reduce the makespan, so splitting all of them together is also tried.
+ * Pages are split between pieces as by LptPartitionStrategy. As with NaivePartitionStrategy, split groups follow the
+ * groups which were left whole.
+ */
+public class SetUpCostAwarePartitionStrategy implements PartitionStrategy {
+
+    @Override
+    public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups, final int count) {
+        groups.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+
+        final List<List<WeightedWikiPageGroup>> pieces = new ArrayList<>(groups.size());
+        groups.forEach(group -> pieces.add(Collections.singletonList(group)));
+
+        long makespan = getMakespan(pieces, count);
+
+        while (true) {
+            final long splitMakespan = splitOnce(groups, pieces, count, makespan);
+
+            if (splitMakespan >= makespan) {
+                break;
+            }
+
+            makespan = splitMakespan;
+        }
+
+        final List<WeightedWikiPageGroup> partitioned = new ArrayList<>(groups.size() + count);
+        final List<WeightedWikiPageGroup> split = new ArrayList<>();
+
+        for (final List<WeightedWikiPageGroup> groupPieces : pieces) {
+            if (groupPieces.size() == 1) {
+                partitioned.add(groupPieces.get(0));
+            } else {
+                split.addAll(groupPieces);
+            }
+        }
+
+        partitioned.addAll(split);
+        return partitioned;
+    }
+
+    /**
+     * Tries splitting each group into one more piece, heaviest piece first, and keeps the first split which reduces
+     * the makespan. Failing that, tries splitting all groups tied for the heaviest piece together.
+     * @return the new makespan, or the given makespan if no split reduced it.
+     */
+    private long splitOnce(final List<WeightedWikiPageGroup> groups, final List<List<WeightedWikiPageGroup>> pieces,
+            final int count, final long makespan) {
+
+        final List<Integer> candidates = new ArrayList<>(groups.size());
+
+        for (int i = 0; i < groups.size(); ++i) {
+            final int size = pieces.get(i).size();
+
+            if (size < count && size < groups.get(i).getWikiPages().size()) {
+                candidates.add(i);
+            }
+        }
+
+        candidates.sort(Comparator.comparingLong((Integer i) -> getHeaviestPiece(pieces.get(i))).reversed());
+
+        for (final int i : candidates) {
+            final List<WeightedWikiPageGroup> previous =
+                    pieces.set(i, LptPartitionStrategy.split(groups.get(i), pieces.get(i).size() + 1));
+
+            final long splitMakespan = getMakespan(pieces, count);
+
+            if (splitMakespan < makespan) {
+                return splitMakespan;
+            }
+
+            pieces.set(i, previous);
+        }
+
+        return splitTied(groups, pieces, count, makespan, candidates);
+    }
+
+    private long splitTied(final List<WeightedWikiPageGroup> groups, final List<List<WeightedWikiPageGroup>> pieces,
+            final int count, final long makespan, final List<Integer> candidates) {
+
+        if (candidates.size() < 2) {
+            return makespan;
+        }
+
+        final long heaviestPiece = getHeaviestPiece(pieces.get(candidates.get(0)));
+        final List<Integer> tied = new ArrayList<>();
+
+        for (final int i : candidates) {
+            if (getHeaviestPiece(pieces.get(i)) == heaviestPiece) {
+                tied.add(i);
+            }
+        }
+
+        if (tied.size() < 2) {
+            return makespan;
+        }
+
+        final List<List<WeightedWikiPageGroup>> previous = new ArrayList<>(tied.size());
+
+        for (final int i : tied) {
+            previous.add(pieces.set(i, LptPartitionStrategy.split(groups.get(i), pieces.get(i).size() + 1)));
+        }
+
+        final long splitMakespan = getMakespan(pieces, count);
+
+        if (splitMakespan < makespan) {
+            return splitMakespan;
+        }
+
+        for (int j = 0; j < tied.size(); ++j) {
+            pieces.set(tied.get(j), previous.get(j));
+        }
+
+        return makespan;
+    }
+
+    private static long getHeaviestPiece(final List<WeightedWikiPageGroup> pieces) {
+        return pieces.stream().mapToLong(WeightedWikiPageGroup::getTotalWeight).max().orElse(0L);
+    }
+
+    private static long getMakespan(final List<List<WeightedWikiPageGroup>> pieces, final int count) {
+        final List<WeightedWikiPageGroup> flattened = new ArrayList<>();
+        pieces.forEach(flattened::addAll);
+        return MakespanEstimator.getMakespan(flattened, count);
+    }
+
+}
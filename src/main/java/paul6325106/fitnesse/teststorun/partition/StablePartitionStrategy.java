@@ -0,0 +1,354 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import fitnesse.wiki.WikiPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static paul6325106.fitnesse.util.WikiPageUtil.getFullPathName;
+
+/**
+ * Keeps pages on the executor they were planned for previously, so that small weight changes between runs do not
+ * reshuffle pages and discard per-executor caches such as warmed databases or compiled fixtures. Executors are
+ * identified by name, so the previous plan is typically one read back by ExecutionPlanReader.
+ *
+ * Pages that were not in the previous plan, or whose executor is no longer available, are placed by weighted
+ * rendezvous hashing of their path name, so they too land on the same executor run after run, and adding or removing
+ * an executor only moves the pages hashed to it. A rebalancing pass then moves pages off the executor with the latest
+ * predicted completion time onto the one with the earliest, but the moves are only kept if together they improve the
+ * predicted makespan by more than the tolerance. Every executor holding pages of a SuiteSetUp and SuiteTearDown
+ * combination pays for that setup, and moves are costed accordingly.
+ *
+ * For the count based API, executors are named shard-0 to shard-(count - 1) and groups are returned in shard order.
+ * TestsToRunContexts generated through the count based API carry no executor, so a plan written from them cannot be
+ * the previous plan of a later run and placement falls back to hashing alone. To keep a count based setup stable,
+ * generate through the executor API with getShards(count), whose contexts are tagged with their shard; a plan written
+ * from those feeds back into both APIs.
+ */
+public class StablePartitionStrategy implements PartitionStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(StablePartitionStrategy.class);
+
+    private static final String SHARD_PREFIX = "shard-";
+
+    private final Map<String, String> previousExecutorNames = new HashMap<>();
+    private final double tolerance;
+
+    /**
+     * @param previousPlan TestsToRunContexts of the previous run. Contexts without an executor are ignored.
+     * @param tolerance Minimum improvement to the predicted makespan, as a fraction of it, for a page to be moved.
+     */
+    public StablePartitionStrategy(final Collection<TestsToRunContext> previousPlan, final double tolerance) {
+        this.tolerance = tolerance;
+
+        int ignored = 0;
+
+        for (final TestsToRunContext testsToRunContext : previousPlan) {
+            if (testsToRunContext.getExecutor() == null) {
+                ++ignored;
+                continue;
+            }
+
+            for (final WikiPage page : testsToRunContext.getTestsToRun()) {
+                previousExecutorNames.put(getFullPathName(page), testsToRunContext.getExecutor().getName());
+            }
+        }
+
+        if (ignored > 0) {
+            LOGGER.warn("Ignored " + ignored + " contexts of the previous plan without an executor");
+        }
+    }
+
+    /**
+     * @param count Number of shards.
+     * @return unit speed executors named as by the count based API, shard-0 to shard-(count - 1).
+     */
+    public static List<ExecutorSpec> getShards(final int count) {
+        final List<ExecutorSpec> executors = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            executors.add(new ExecutorSpec(SHARD_PREFIX + i, 1.0));
+        }
+        return executors;
+    }
+
+    @Override
+    public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups, final int count) {
+        final List<WeightedWikiPageGroup> partitioned = new ArrayList<>();
+        partition(groups, getShards(count)).values().forEach(partitioned::addAll);
+        return partitioned;
+    }
+
+    @Override
+    public Map<ExecutorSpec, List<WeightedWikiPageGroup>> partition(final List<WeightedWikiPageGroup> groups,
+            final List<ExecutorSpec> executors) {
+
+        ExecutorAssigner.checkExecutors(executors);
+
+        final Map<String, Integer> indices = new HashMap<>();
+        final Shard[] shards = new Shard[executors.size()];
+
+        for (int i = 0; i < shards.length; ++i) {
+            shards[i] = new Shard(executors.get(i));
+            indices.put(executors.get(i).getName(), i);
+        }
+
+        int kept = 0;
+
+        for (final WeightedWikiPageGroup group : groups) {
+            for (final WeightedWikiPage page : group.getWikiPages()) {
+                final String pathName = getFullPathName(page.getWikiPage());
+                final Integer previous = indices.get(previousExecutorNames.get(pathName));
+
+                if (previous != null) {
+                    ++kept;
+                }
+
+                final int index = previous != null ? previous : getRendezvousIndex(pathName, executors);
+                shards[index].add(group, page);
+            }
+        }
+
+        final int moved = rebalance(shards);
+
+        LOGGER.debug("Kept " + kept + " pages on their previous executor and moved " + moved + " to rebalance");
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned = new LinkedHashMap<>();
+        for (final Shard shard : shards) {
+            partitioned.put(shard.executor, shard.build());
+        }
+        return partitioned;
+    }
+
+    /**
+     * Moves single pages from the shard which completes last to the shard which completes first, choosing the page
+     * which most reduces the makespan, for as long as a move reduces it. The moves are only kept if together they
+     * reduce the makespan by more than the tolerance, otherwise every page stays where it was.
+     * @return number of pages moved.
+     */
+    private int rebalance(final Shard[] shards) {
+        final List<Move> moves = new ArrayList<>();
+        final double initialMakespan = getMakespan(shards);
+
+        while (shards.length > 1) {
+            Shard latest = shards[0];
+            Shard earliest = shards[0];
+
+            for (final Shard shard : shards) {
+                if (shard.getTime() > latest.getTime()) {
+                    latest = shard;
+                }
+                if (shard.getTime() < earliest.getTime()) {
+                    earliest = shard;
+                }
+            }
+
+            if (latest == earliest) {
+                break;
+            }
+
+            double others = 0.0;
+            for (final Shard shard : shards) {
+                if (shard != latest && shard != earliest) {
+                    others = Math.max(others, shard.getTime());
+                }
+            }
+
+            double bestMakespan = latest.getTime();
+            Piece bestPiece = null;
+            WeightedWikiPage bestPage = null;
+
+            for (final Piece piece : latest.pieces.values()) {
+                final long setUpWeight = piece.getSetUpTearDownWeight();
+                final long removedSetUp = piece.pages.size() == 1 ? setUpWeight : 0L;
+                final long addedSetUp = earliest.pieces.containsKey(piece.pair) ? 0L : setUpWeight;
+
+                for (final WeightedWikiPage page : piece.pages) {
+                    final double candidate = Math.max(others, Math.max(
+                            (latest.weight - page.getWeight() - removedSetUp) / latest.executor.getSpeed(),
+                            (earliest.weight + page.getWeight() + addedSetUp) / earliest.executor.getSpeed()));
+
+                    if (candidate < bestMakespan) {
+                        bestMakespan = candidate;
+                        bestPiece = piece;
+                        bestPage = page;
+                    }
+                }
+            }
+
+            if (bestPage == null) {
+                break;
+            }
+
+            latest.remove(bestPiece, bestPage);
+            earliest.add(bestPiece.group, bestPage);
+            moves.add(new Move(bestPiece.group, bestPage, latest, earliest));
+        }
+
+        if (initialMakespan - getMakespan(shards) <= tolerance * initialMakespan) {
+            for (int i = moves.size() - 1; i >= 0; --i) {
+                final Move move = moves.get(i);
+                move.to.remove(move.to.pieces.get(move.group.getSuiteSetUpTearDownPair()), move.page);
+                move.from.add(move.group, move.page);
+            }
+
+            return 0;
+        }
+
+        return moves.size();
+    }
+
+    private static double getMakespan(final Shard[] shards) {
+        double makespan = 0.0;
+
+        for (final Shard shard : shards) {
+            makespan = Math.max(makespan, shard.getTime());
+        }
+
+        return makespan;
+    }
+
+    /**
+     * Weighted rendezvous hashing: the executor with the highest score for the page wins, where faster executors
+     * score proportionally higher.
+     */
+    private static int getRendezvousIndex(final String pathName, final List<ExecutorSpec> executors) {
+        final long pageHash = hash(pathName);
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < executors.size(); ++i) {
+            final long mixed = mix(pageHash ^ hash(executors.get(i).getName()) * 0x9e3779b97f4a7c15L);
+            // uniform in (0, 1)
+            final double uniform = ((mixed >>> 11) + 0.5) / (1L << 53);
+            final double score = -executors.get(i).getSpeed() / Math.log(uniform);
+
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+
+        return best;
+    }
+
+    private static long hash(final String value) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static class Move {
+
+        private final WeightedWikiPageGroup group;
+        private final WeightedWikiPage page;
+        private final Shard from;
+        private final Shard to;
+
+        Move(final WeightedWikiPageGroup group, final WeightedWikiPage page, final Shard from, final Shard to) {
+            this.group = group;
+            this.page = page;
+            this.from = from;
+            this.to = to;
+        }
+
+    }
+
+    /**
+     * Pages of one SuiteSetUp and SuiteTearDown combination on one shard.
+     */
+    private static class Piece {
+
+        private final WeightedWikiPageGroup group;
+        private final SuiteSetUpTearDownPair pair;
+        private final List<WeightedWikiPage> pages = new ArrayList<>();
+        private long pagesWeight;
+
+        Piece(final WeightedWikiPageGroup group) {
+            this.group = group;
+            this.pair = group.getSuiteSetUpTearDownPair();
+        }
+
+        long getSetUpTearDownWeight() {
+            return group.getSetUpWeight() + group.getTearDownWeight();
+        }
+
+    }
+
+    private static class Shard {
+
+        private final ExecutorSpec executor;
+        private final Map<SuiteSetUpTearDownPair, Piece> pieces = new LinkedHashMap<>();
+        private long weight;
+
+        Shard(final ExecutorSpec executor) {
+            this.executor = executor;
+        }
+
+        double getTime() {
+            return weight / executor.getSpeed();
+        }
+
+        void add(final WeightedWikiPageGroup group, final WeightedWikiPage page) {
+            Piece piece = pieces.get(group.getSuiteSetUpTearDownPair());
+
+            if (piece == null) {
+                piece = new Piece(group);
+                pieces.put(piece.pair, piece);
+                weight += piece.getSetUpTearDownWeight();
+            }
+
+            piece.pages.add(page);
+            piece.pagesWeight += page.getWeight();
+            weight += page.getWeight();
+        }
+
+        void remove(final Piece piece, final WeightedWikiPage page) {
+            piece.pages.remove(page);
+            piece.pagesWeight -= page.getWeight();
+            weight -= page.getWeight();
+
+            if (piece.pages.isEmpty()) {
+                pieces.remove(piece.pair);
+                weight -= piece.getSetUpTearDownWeight();
+            }
+        }
+
+        List<WeightedWikiPageGroup> build() {
+            final List<WeightedWikiPageGroup> groups = new ArrayList<>(pieces.size());
+
+            for (final Piece piece : pieces.values()) {
+                groups.add(new WeightedWikiPageGroup(piece.pair, piece.pages, piece.group.getSetUpWeight(),
+                        piece.group.getTearDownWeight(), piece.pagesWeight));
+            }
+
+            groups.sort(Comparator.comparingLong(WeightedWikiPageGroup::getTotalWeight).reversed());
+            return groups;
+        }
+
+    }
+
+}
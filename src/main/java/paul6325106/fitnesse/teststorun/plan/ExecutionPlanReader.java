@@ -0,0 +1,142 @@
+package paul6325106.fitnesse.teststorun.plan;
+
+import fitnesse.wiki.PageCrawler;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads an execution plan written by ExecutionPlanWriter one shard at a time, rehydrating each shard as a
+ * TestsToRunContext against a local wiki. Weights are read from the plan rather than recomputed.
+ */
+public class ExecutionPlanReader implements Closeable {
+
+    private final DataInputStream in;
+    private final PageCrawler pageCrawler;
+    private boolean ended;
+
+    public ExecutionPlanReader(final File file, final WikiPage root) throws IOException {
+        this(new FileInputStream(file), root);
+    }
+
+    /**
+     * @param in Stream to read from, closed when the reader is closed.
+     * @param root Root of the wiki to resolve page path names against.
+     * @throws IOException when unable to read the header, or the stream is not a supported execution plan.
+     */
+    public ExecutionPlanReader(final InputStream in, final WikiPage root) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+        this.pageCrawler = root.getPageCrawler();
+
+        try {
+            if (this.in.readInt() != ExecutionPlanWriter.MAGIC) {
+                throw new IOException("Not an execution plan");
+            }
+
+            final int version = this.in.readInt();
+            if (version != ExecutionPlanWriter.VERSION) {
+                throw new IOException("Unsupported execution plan version: " + version);
+            }
+        } catch (final IOException e) {
+            this.in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next shard.
+     * @return TestsToRunContext for the shard, or null if there are no more shards.
+     * @throws IOException when unable to read the plan, including when the plan is truncated.
+     * @throws TestsToRunContextGeneratorException when a page in the plan does not exist in the local wiki.
+     */
+    public TestsToRunContext read() throws IOException, TestsToRunContextGeneratorException {
+        if (ended) {
+            return null;
+        }
+
+        final byte marker = in.readByte();
+
+        if (marker == ExecutionPlanWriter.END) {
+            ended = true;
+            return null;
+        }
+
+        if (marker != ExecutionPlanWriter.SHARD) {
+            throw new IOException("Corrupt execution plan, unexpected marker: " + marker);
+        }
+
+        final String requestedPagePath = readOptional();
+
+        SuiteSetUpTearDownPair pair = null;
+        if (in.readBoolean()) {
+            pair = new SuiteSetUpTearDownPair(readOptional(), readOptional());
+        }
+
+        final long weight = in.readLong();
+
+        ExecutorSpec executor = null;
+        if (in.readBoolean()) {
+            executor = new ExecutorSpec(readOptional(), in.readDouble());
+        }
+
+        final int count = in.readInt();
+        final List<WikiPage> testsToRun = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            testsToRun.add(getPage(in.readUTF()));
+        }
+
+        final WikiPage requestedPage = requestedPagePath == null ? null : getPage(requestedPagePath);
+
+        return new TestsToRunContext(requestedPage, testsToRun, executor, pair, weight);
+    }
+
+    /**
+     * Reads all remaining shards.
+     */
+    public List<TestsToRunContext> readAll() throws IOException, TestsToRunContextGeneratorException {
+        final List<TestsToRunContext> testsToRunContexts = new ArrayList<>();
+
+        TestsToRunContext testsToRunContext;
+        while ((testsToRunContext = read()) != null) {
+            testsToRunContexts.add(testsToRunContext);
+        }
+
+        return testsToRunContexts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private WikiPage getPage(final String pathName) throws TestsToRunContextGeneratorException {
+        final WikiPage page = pageCrawler.getPage(PathParser.parse(pathName));
+
+        if (page == null) {
+            throw new TestsToRunContextGeneratorException("Unable to find page in local wiki: " + pathName,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_FIND_WIKI_PAGE);
+        }
+
+        return page;
+    }
+
+    private String readOptional() throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
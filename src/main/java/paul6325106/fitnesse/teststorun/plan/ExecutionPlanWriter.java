@@ -0,0 +1,127 @@
+package paul6325106.fitnesse.teststorun.plan;
+
+import fitnesse.wiki.WikiPage;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+import static paul6325106.fitnesse.util.WikiPageUtil.getFullPathName;
+
+/**
+ * Writes TestsToRunContexts to an execution plan, so that one node can plan and many nodes can execute. WikiPages are
+ * written as full path names, to be resolved against each executing node's own wiki by ExecutionPlanReader.
+ *
+ * The plan is gzipped. After a header (magic, version), each shard is written as a SHARD marker, the requested page,
+ * the SuiteSetUp and SuiteTearDown combination, the predicted weight, the executor and the ordered pages to test. The
+ * plan ends with an END marker, so that a truncated plan is detected rather than silently read short. If writing a
+ * shard fails, the END marker is never written, so the partial plan is rejected when read.
+ */
+public class ExecutionPlanWriter implements Closeable {
+
+    static final int MAGIC = 0x4652504c; // FRPL
+    static final int VERSION = 1;
+
+    static final byte END = 0;
+    static final byte SHARD = 1;
+
+    private final OutputStream target;
+    private final DataOutputStream out;
+    private boolean failed;
+
+    public ExecutionPlanWriter(final File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    /**
+     * @param out Stream to write to, closed when the writer is closed.
+     * @throws IOException when unable to write the header.
+     */
+    public ExecutionPlanWriter(final OutputStream out) throws IOException {
+        this.target = out;
+        this.out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(out)));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    public void write(final Collection<TestsToRunContext> testsToRunContexts) throws IOException {
+        for (final TestsToRunContext testsToRunContext : testsToRunContexts) {
+            write(testsToRunContext);
+        }
+    }
+
+    public void write(final TestsToRunContext testsToRunContext) throws IOException {
+        if (failed) {
+            throw new IOException("Unable to continue an execution plan after a failed write");
+        }
+
+        try {
+            writeShard(testsToRunContext);
+        } catch (final IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private void writeShard(final TestsToRunContext testsToRunContext) throws IOException {
+        out.writeByte(SHARD);
+
+        writeOptional(getFullPathName(testsToRunContext.getRequestedPage()));
+
+        final SuiteSetUpTearDownPair pair = testsToRunContext.getSuiteSetUpTearDownPair();
+        out.writeBoolean(pair != null);
+        if (pair != null) {
+            writeOptional(pair.getSuiteSetUpPath());
+            writeOptional(pair.getSuiteTearDownPath());
+        }
+
+        out.writeLong(testsToRunContext.getWeight());
+
+        final ExecutorSpec executor = testsToRunContext.getExecutor();
+        out.writeBoolean(executor != null);
+        if (executor != null) {
+            writeOptional(executor.getName());
+            out.writeDouble(executor.getSpeed());
+        }
+
+        out.writeInt(testsToRunContext.getTestsToRun().size());
+        for (final WikiPage page : testsToRunContext.getTestsToRun()) {
+            out.writeUTF(getFullPathName(page));
+        }
+    }
+
+    /**
+     * Ends the plan and closes the underlying stream. If a shard failed to write, the underlying stream is closed
+     * without ending the plan or flushing what is buffered, so the plan cannot be read as complete.
+     */
+    @Override
+    public void close() throws IOException {
+        if (failed) {
+            target.close();
+            return;
+        }
+
+        try {
+            out.writeByte(END);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeOptional(final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+}
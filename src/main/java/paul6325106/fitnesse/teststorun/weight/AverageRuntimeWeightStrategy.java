@@ -1,33 +1,63 @@
 package paul6325106.fitnesse.teststorun.weight;
 
 import fitnesse.FitNesseContext;
-import fitnesse.reporting.history.ExecutionReport;
-import fitnesse.reporting.history.InvalidReportException;
 import fitnesse.reporting.history.PageHistory;
 import fitnesse.reporting.history.TestHistory;
 import fitnesse.reporting.history.TestResultRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
-import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
-import util.FileUtil;
 
-import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.SortedSet;
+import java.util.Iterator;
+import java.util.TreeSet;
 
 /**
  * Strategy for determining a WikiPage's weight by the average of runtimes for all available previous test results. A
  * default weight of 1 is used if no test results can be found.
+ *
+ * The average can be restricted to a window of the newest test results, by count and/or by age, which bounds the
+ * number of test result records read per lookup regardless of how much history is kept.
  */
 public class AverageRuntimeWeightStrategy implements WeightStrategy {
 
     private static Logger LOGGER = LoggerFactory.getLogger(AverageRuntimeWeightStrategy.class);
 
     private final TestHistory history;
+    private final StreamingRuntimeExtractor extractor;
+    private final int maxRecords;
+    private final Duration maxAge;
+    private final Clock clock;
 
     public AverageRuntimeWeightStrategy(final FitNesseContext context) {
+        this(context, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * @param context FitNesseContext providing the test history directory.
+     * @param maxRecords Maximum number of the newest test results to average.
+     * @param maxAge Only average test results newer than this, or null for no age limit. The latest test result is
+     *               always included, so a WikiPage which has not been run recently keeps its last known weight.
+     */
+    public AverageRuntimeWeightStrategy(final FitNesseContext context, final int maxRecords, final Duration maxAge) {
+        this(context, maxRecords, maxAge, Clock.systemUTC());
+    }
+
+    AverageRuntimeWeightStrategy(final FitNesseContext context, final int maxRecords, final Duration maxAge,
+            final Clock clock) {
+
+        if (maxRecords < 1) {
+            throw new IllegalArgumentException("maxRecords must be at least 1: " + maxRecords);
+        }
+
         history = new TestHistory(context.getTestHistoryDirectory());
+        extractor = new StreamingRuntimeExtractor();
+        this.maxRecords = maxRecords;
+        this.maxAge = maxAge;
+        this.clock = clock;
     }
 
     @Override
@@ -40,33 +70,31 @@ public class AverageRuntimeWeightStrategy implements WeightStrategy {
             return 1L;
         }
 
-        SortedSet<Date> dates = pageHistory.datesInChronologicalOrder();
+        final long cutoff = maxAge == null ? Long.MIN_VALUE : clock.millis() - maxAge.toMillis();
+
+        // only dates are sorted here, test result records are read newest first until the window is full
+        final TreeSet<Date> dates = new TreeSet<>(Comparator.naturalOrder());
+        dates.addAll(pageHistory.datesInChronologicalOrder());
+
+        final Iterator<Date> iterator = dates.descendingIterator();
 
         long sum = 0;
+        int count = 0;
 
-        for (final Date date : dates) {
-            final TestResultRecord testResultRecord = pageHistory.get(date);
+        while (iterator.hasNext() && count < maxRecords) {
+            final Date date = iterator.next();
 
-            final String content;
-            try {
-                content = FileUtil.getFileContent(testResultRecord.getFile());
-            } catch (final IOException e) {
-                throw new TestsToRunContextGeneratorException("Unable to read test result record: " +
-                        testResultRecord.getFile(), e, TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+            if (count > 0 && date.getTime() < cutoff) {
+                break;
             }
 
-            final ExecutionReport executionReport;
-            try {
-                executionReport = ExecutionReport.makeReport(content);
-            } catch (final InvalidReportException e) {
-                throw new TestsToRunContextGeneratorException("Unable to make execution report", e,
-                        TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
-            }
+            final TestResultRecord testResultRecord = pageHistory.get(date);
 
-            sum += executionReport.getTotalRunTimeInMillis();
+            sum += extractor.getRuntime(testResultRecord.getFile());
+            ++count;
         }
 
-        return sum / dates.size();
+        return sum / count;
     }
 
 }
@@ -0,0 +1,162 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decorates a WeightStrategy with a bounded, least recently used cache of weights. Intended for long-lived processes
+ * which generate TestsToRunContexts repeatedly. A cached weight is reused until the test result records in the
+ * WikiPage's directory in the test history directory change, i.e. until their count or latest record name changes.
+ *
+ * Only valid for delegates whose weight for a page depends on nothing but that page's own test result records, such
+ * as LatestRuntimeWeightStrategy, AverageRuntimeWeightStrategy, EwmaRuntimeWeightStrategy and
+ * PercentileRuntimeWeightStrategy. Delegates which read other pages' records or other files, such as
+ * EstimatingWeightStrategy, SuiteSetUpTearDownWeightStrategy and RuntimeLogWeightStrategy, would be cached stale.
+ */
+public class CachingWeightStrategy implements WeightStrategy {
+
+    private static class Entry {
+
+        private final long weight;
+        private final String records;
+
+        Entry(final long weight, final String records) {
+            this.weight = weight;
+            this.records = records;
+        }
+
+    }
+
+    /**
+     * Access-ordered map which evicts its least recently used entry once it grows beyond a maximum size.
+     */
+    private static class LruCache extends LinkedHashMap<String, Entry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+        private final AtomicLong evictions;
+
+        LruCache(final int maximumSize, final AtomicLong evictions) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+    private final WeightStrategy delegate;
+    private final File testHistoryDirectory;
+    private final Map<String, Entry> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param context FitNesseContext providing the test history directory.
+     * @param delegate WeightStrategy to cache weights from.
+     * @param maximumSize Maximum number of weights to cache before evicting the least recently used.
+     */
+    public CachingWeightStrategy(final FitNesseContext context, final WeightStrategy delegate,
+            final int maximumSize) {
+
+        this.delegate = delegate;
+        this.testHistoryDirectory = context.getTestHistoryDirectory();
+        this.cache = new LruCache(maximumSize, evictions);
+    }
+
+    @Override
+    public long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        final String records = getRecords(pathName);
+
+        final Entry cached;
+        synchronized (cache) {
+            cached = cache.get(pathName);
+        }
+
+        if (cached != null && cached.records.equals(records)) {
+            hits.incrementAndGet();
+            return cached.weight;
+        }
+
+        misses.incrementAndGet();
+
+        // resolved outside the lock so that concurrent lookups of different pages do not queue behind each other
+        final long weight = delegate.getWeight(pathName);
+
+        synchronized (cache) {
+            cache.put(pathName, new Entry(weight, records));
+        }
+
+        return weight;
+    }
+
+    /**
+     * @return number of lookups answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups passed to the delegate, either uncached or invalidated by a new test result record.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of weights evicted to keep the cache within its maximum size.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of weights currently cached.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Record names start with the time they were written, so the latest name changes with every record, however
+     * coarse the file system's modification times.
+     * @return count and latest name of the page's test result records, empty if the page has no history, so a page
+     * gaining its first record is also invalidated.
+     */
+    private String getRecords(final String pathName) {
+        final String[] names = pathName == null ? null : new File(testHistoryDirectory, pathName).list();
+
+        if (names == null || names.length == 0) {
+            return "";
+        }
+
+        String latest = names[0];
+        for (final String name : names) {
+            if (name.compareTo(latest) > 0) {
+                latest = name;
+            }
+        }
+
+        return names.length + "/" + latest;
+    }
+
+}
@@ -0,0 +1,213 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import fitnesse.reporting.history.TestHistory;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Decorates a WeightStrategy with estimates for WikiPages which have no test history, so that new or renamed pages are
+ * not all treated as free and clumped onto one executor. For such pages the first available estimate is used:
+ * <ol>
+ *     <li>the weight of the page's previous path name, if it has been renamed;</li>
+ *     <li>the median weight of sibling test pages with test history;</li>
+ *     <li>the number of table rows in the page content, multiplied by a weight per row.</li>
+ * </ol>
+ * A default weight of 1 is used if none are available.
+ *
+ * Whether a page has test history is checked on every lookup, so a page which gains history is passed to the delegate
+ * from then on. Sibling medians are taken from the test history as of construction or the last refresh. SuiteSetUp and
+ * SuiteTearDown pages never have test history of their own and are always passed to the delegate, as a sibling test
+ * median would overstate their weight.
+ */
+public class EstimatingWeightStrategy implements WeightStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(EstimatingWeightStrategy.class);
+
+    // table rows may be prefixed by ! (literal table) and - (hidden table)
+    private static final Pattern TABLE_ROW = Pattern.compile("\\s*-?!?\\|");
+
+    private final WeightStrategy delegate;
+    private final WikiPage root;
+    private final File testHistoryDirectory;
+    private final Map<String, String> previousPathNames;
+    private final long weightPerTableRow;
+
+    private volatile Siblings siblings;
+
+    /**
+     * @param context FitNesseContext providing the root page and test history directory.
+     * @param delegate WeightStrategy for WikiPages which do have test history.
+     * @param previousPathNames Renamed WikiPages, from new path name to previous path name.
+     * @param weightPerTableRow Weight of a single table row, when estimating from page content.
+     */
+    public EstimatingWeightStrategy(final FitNesseContext context, final WeightStrategy delegate,
+            final Map<String, String> previousPathNames, final long weightPerTableRow) {
+
+        this.delegate = delegate;
+        this.root = context.getRootPage();
+        this.testHistoryDirectory = context.getTestHistoryDirectory();
+        this.previousPathNames = previousPathNames;
+        this.weightPerTableRow = weightPerTableRow;
+
+        refresh();
+    }
+
+    /**
+     * Re-reads the test history for sibling medians, discarding those already taken.
+     */
+    public void refresh() {
+        siblings = new Siblings(new TestHistory(testHistoryDirectory).getPageNames());
+    }
+
+    @Override
+    public long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        if (pathName == null || hasHistory(pathName) || isSuiteSetUpOrTearDown(pathName)) {
+            return delegate.getWeight(pathName);
+        }
+
+        final String previousPathName = previousPathNames.get(pathName);
+
+        if (previousPathName != null && hasHistory(previousPathName)) {
+            LOGGER.info("Estimating weight from previous path name: " + pathName);
+            return delegate.getWeight(previousPathName);
+        }
+
+        final long siblingMedian = getSiblingMedian(getParentPathName(pathName));
+
+        if (siblingMedian > 0) {
+            LOGGER.info("Estimating weight from siblings: " + pathName);
+            return siblingMedian;
+        }
+
+        final long tableRows = getTableRowCount(pathName);
+
+        if (tableRows > 0) {
+            LOGGER.info("Estimating weight from table rows: " + pathName);
+            return tableRows * weightPerTableRow;
+        }
+
+        LOGGER.warn("Unable to estimate weight: " + pathName);
+        return 1L;
+    }
+
+    private boolean hasHistory(final String pathName) {
+        return new File(testHistoryDirectory, pathName).isDirectory();
+    }
+
+    private static boolean isSuiteSetUpOrTearDown(final String pathName) {
+        final String name = pathName.substring(pathName.lastIndexOf('.') + 1);
+        return PageData.SUITE_SETUP_NAME.equals(name) || PageData.SUITE_TEARDOWN_NAME.equals(name);
+    }
+
+    private long getSiblingMedian(final String parentPathName) throws TestsToRunContextGeneratorException {
+        final Siblings current = siblings;
+        final Long cached = current.medians.get(parentPathName);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<String> names = current.childPageNames.getOrDefault(parentPathName, Collections.emptyList());
+        final List<Long> weights = new ArrayList<>(names.size());
+
+        for (final String sibling : names) {
+            // a sibling with descendants in the test history is a suite, its records hold whole-suite runtimes
+            if (!current.ancestorPageNames.contains(sibling)) {
+                weights.add(delegate.getWeight(sibling));
+            }
+        }
+
+        Collections.sort(weights);
+
+        final long median = weights.isEmpty() ? 0L : weights.get(weights.size() / 2);
+        current.medians.put(parentPathName, median);
+        return median;
+    }
+
+    private long getTableRowCount(final String pathName) {
+        final WikiPage page = root.getPageCrawler().getPage(PathParser.parse(pathName));
+
+        if (page == null) {
+            return 0L;
+        }
+
+        final String content = page.getData().getContent();
+
+        if (content == null) {
+            return 0L;
+        }
+
+        long rows = 0;
+
+        for (final String line : content.split("\\R")) {
+            if (TABLE_ROW.matcher(line).lookingAt()) {
+                ++rows;
+            }
+        }
+
+        return rows;
+    }
+
+    private static Map<String, List<String>> getChildPageNames(final Set<String> pageNames) {
+        final Map<String, List<String>> childPageNames = new HashMap<>();
+
+        for (final String pageName : pageNames) {
+            childPageNames.computeIfAbsent(getParentPathName(pageName), key -> new ArrayList<>()).add(pageName);
+        }
+
+        return childPageNames;
+    }
+
+    private static Set<String> getAncestorPageNames(final Set<String> pageNames) {
+        final Set<String> ancestorPageNames = new HashSet<>();
+
+        for (final String pageName : pageNames) {
+            String parent = getParentPathName(pageName);
+
+            // stops early at an ancestor already added, along with all of its own ancestors
+            while (!parent.isEmpty() && ancestorPageNames.add(parent)) {
+                parent = getParentPathName(parent);
+            }
+        }
+
+        return ancestorPageNames;
+    }
+
+    private static String getParentPathName(final String pathName) {
+        final int index = pathName.lastIndexOf('.');
+        return index < 0 ? "" : pathName.substring(0, index);
+    }
+
+    /**
+     * Pages in the test history by parent, and the medians taken from them, replaced as a whole on refresh.
+     */
+    private static class Siblings {
+
+        private final Map<String, List<String>> childPageNames;
+        private final Set<String> ancestorPageNames;
+        private final Map<String, Long> medians = new ConcurrentHashMap<>();
+
+        Siblings(final Set<String> pageNames) {
+            this.childPageNames = getChildPageNames(pageNames);
+            this.ancestorPageNames = getAncestorPageNames(pageNames);
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Strategy for determining a WikiPage's weight by an exponentially weighted moving average of its runtimes, so recent
+ * runs count for more than old ones and regressions in the system under test show up quickly. The average and the time
+ * of the latest record folded into it are persisted per WikiPage, so each new test result record is an O(1) update and
+ * old records are never read again. A default weight of 1 is used if no test results can be found.
+ */
+public class EwmaRuntimeWeightStrategy implements WeightStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(EwmaRuntimeWeightStrategy.class);
+
+    private static final int MAGIC = 0x46524557; // FREW
+    private static final int VERSION = 1;
+
+    private static class State {
+
+        private final long latestTime;
+        private final double average;
+
+        State(final long latestTime, final double average) {
+            this.latestTime = latestTime;
+            this.average = average;
+        }
+
+    }
+
+    private final TestHistoryRuntimeScanner scanner;
+    private final File stateFile;
+    private final double alpha;
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * Loads persisted state and brings it up to date with the test history directory.
+     * @param context FitNesseContext providing the test history directory.
+     * @param stateFile File to persist averages in, created if missing.
+     * @param alpha Weight given to each new runtime, between 0 (exclusive) and 1 (inclusive). Higher values forget
+     *              older runtimes faster.
+     * @throws TestsToRunContextGeneratorException when unable to read test results or persist state.
+     */
+    public EwmaRuntimeWeightStrategy(final FitNesseContext context, final File stateFile, final double alpha)
+            throws TestsToRunContextGeneratorException {
+
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]: " + alpha);
+        }
+
+        this.scanner = new TestHistoryRuntimeScanner(context.getTestHistoryDirectory());
+        this.stateFile = stateFile;
+        this.alpha = alpha;
+
+        load();
+        refresh();
+    }
+
+    /**
+     * Folds any test result records written since the last refresh into the averages and persists them.
+     * @throws TestsToRunContextGeneratorException when unable to read test results or persist state.
+     */
+    public synchronized void refresh() throws TestsToRunContextGeneratorException {
+        scanner.scan(new TestHistoryRuntimeScanner.Visitor() {
+            @Override
+            public long getLatestVisitedTime(final String pathName) {
+                final State state = states.get(pathName);
+                return state == null ? Long.MIN_VALUE : state.latestTime;
+            }
+
+            @Override
+            public void visit(final String pathName, final long time, final long runtime) {
+                final State state = states.get(pathName);
+                final double average = state == null ? runtime : alpha * runtime + (1 - alpha) * state.average;
+                states.put(pathName, new State(time, average));
+            }
+        });
+
+        save();
+    }
+
+    @Override
+    public long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        final State state = pathName == null ? null : states.get(pathName);
+
+        if (state == null) {
+            LOGGER.warn("No page history available: " + pathName);
+            return 1L;
+        }
+
+        return Math.round(state.average);
+    }
+
+    private void load() throws TestsToRunContextGeneratorException {
+        if (!stateFile.isFile()) {
+            return;
+        }
+
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.warn("Ignoring unrecognised EWMA state file: " + stateFile);
+                return;
+            }
+
+            final int size = in.readInt();
+
+            for (int i = 0; i < size; ++i) {
+                states.put(in.readUTF(), new State(in.readLong(), in.readDouble()));
+            }
+        } catch (final IOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to read EWMA state: " + stateFile, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+    }
+
+    private void save() throws TestsToRunContextGeneratorException {
+        final File temp = new File(stateFile.getPath() + ".tmp");
+
+        try {
+            try (final DataOutputStream out =
+                         new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(states.size());
+
+                for (final Map.Entry<String, State> entry : states.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().latestTime);
+                    out.writeDouble(entry.getValue().average);
+                }
+            }
+
+            // replace in one step so a crash never leaves a truncated state file behind
+            Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (final IOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to write EWMA state: " + stateFile, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Strategy for determining a WikiPage's weight from a persistent RuntimeIndex of previous test results. The index is
+ * built from the test history directory on first use and only new test result records are read when it is refreshed,
+ * so a lookup is a hash probe rather than an XML parse. A default weight of 1 is used if no test results can be found.
+ */
+public class IndexedRuntimeWeightStrategy implements WeightStrategy, Closeable {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(IndexedRuntimeWeightStrategy.class);
+
+    private final TestHistoryRuntimeScanner scanner;
+    private final RuntimeIndex index;
+    private final ToLongFunction<RuntimeSummary> measure;
+
+    /**
+     * Weighs WikiPages by their average runtime.
+     * @see #IndexedRuntimeWeightStrategy(FitNesseContext, File, ToLongFunction)
+     */
+    public IndexedRuntimeWeightStrategy(final FitNesseContext context, final File indexFile)
+            throws TestsToRunContextGeneratorException {
+
+        this(context, indexFile, RuntimeSummary::getAverage);
+    }
+
+    /**
+     * Opens the index and brings it up to date with the test history directory.
+     * @param context FitNesseContext providing the test history directory.
+     * @param indexFile File backing the index, created if missing.
+     * @param measure Derives a weight from a WikiPage's RuntimeSummary, e.g. RuntimeSummary::getLatest.
+     * @throws TestsToRunContextGeneratorException when unable to open or build the index.
+     */
+    public IndexedRuntimeWeightStrategy(final FitNesseContext context, final File indexFile,
+            final ToLongFunction<RuntimeSummary> measure) throws TestsToRunContextGeneratorException {
+
+        this.scanner = new TestHistoryRuntimeScanner(context.getTestHistoryDirectory());
+        this.measure = measure;
+
+        try {
+            this.index = new RuntimeIndex(indexFile);
+        } catch (final IOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to open runtime index: " + indexFile, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+
+        refresh();
+    }
+
+    /**
+     * Folds any test result records written since the last refresh into the index.
+     * @throws TestsToRunContextGeneratorException when unable to read a test result record or update the index.
+     */
+    public void refresh() throws TestsToRunContextGeneratorException {
+        try {
+            scanner.scan(new TestHistoryRuntimeScanner.Visitor() {
+                @Override
+                public long getLatestVisitedTime(final String pathName) {
+                    final RuntimeSummary summary = index.get(pathName);
+                    return summary == null ? Long.MIN_VALUE : summary.getLatestTime();
+                }
+
+                @Override
+                public void visit(final String pathName, final long time, final long runtime) {
+                    final RuntimeSummary summary = index.get(pathName);
+                    try {
+                        index.put(pathName, summary == null
+                                ? RuntimeSummary.of(time, runtime)
+                                : summary.add(time, runtime));
+                    } catch (final IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to update runtime index", e.getCause(),
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+
+        index.force();
+    }
+
+    @Override
+    public long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        final RuntimeSummary summary = index.get(pathName);
+
+        if (summary == null) {
+            LOGGER.warn("No page history available: " + pathName);
+            return 1L;
+        }
+
+        return measure.applyAsLong(summary);
+    }
+
+    @Override
+    public void close() throws IOException {
+        index.close();
+    }
+
+}
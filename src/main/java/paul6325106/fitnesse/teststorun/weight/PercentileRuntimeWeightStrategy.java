@@ -0,0 +1,75 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Strategy for determining a WikiPage's weight by a quantile (e.g. p90) of its runtimes, so that pages with a long tail
+ * of slow runs are not underestimated. Runtimes are held in a fixed-size RuntimeHistogram per WikiPage, built from the
+ * test history directory once and updated with new test result records on refresh. A default weight of 1 is used if no
+ * test results can be found.
+ */
+public class PercentileRuntimeWeightStrategy implements WeightStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(PercentileRuntimeWeightStrategy.class);
+
+    private final TestHistoryRuntimeScanner scanner;
+    private final double quantile;
+    private final Map<String, RuntimeHistogram> histograms = new HashMap<>();
+    private final Map<String, Long> latestTimes = new HashMap<>();
+
+    /**
+     * @param context FitNesseContext providing the test history directory.
+     * @param quantile Quantile between 0 (exclusive) and 1 (inclusive), e.g. 0.5, 0.9 or 0.99.
+     * @throws TestsToRunContextGeneratorException when unable to read test results.
+     */
+    public PercentileRuntimeWeightStrategy(final FitNesseContext context, final double quantile)
+            throws TestsToRunContextGeneratorException {
+
+        if (quantile <= 0 || quantile > 1) {
+            throw new IllegalArgumentException("quantile must be in (0, 1]: " + quantile);
+        }
+
+        this.scanner = new TestHistoryRuntimeScanner(context.getTestHistoryDirectory());
+        this.quantile = quantile;
+
+        refresh();
+    }
+
+    /**
+     * Adds any test result records written since the last refresh to the histograms.
+     * @throws TestsToRunContextGeneratorException when unable to read test results.
+     */
+    public synchronized void refresh() throws TestsToRunContextGeneratorException {
+        scanner.scan(new TestHistoryRuntimeScanner.Visitor() {
+            @Override
+            public long getLatestVisitedTime(final String pathName) {
+                return latestTimes.getOrDefault(pathName, Long.MIN_VALUE);
+            }
+
+            @Override
+            public void visit(final String pathName, final long time, final long runtime) {
+                histograms.computeIfAbsent(pathName, key -> new RuntimeHistogram()).add(runtime);
+                latestTimes.put(pathName, time);
+            }
+        });
+    }
+
+    @Override
+    public synchronized long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        final RuntimeHistogram histogram = histograms.get(pathName);
+
+        if (histogram == null) {
+            LOGGER.warn("No page history available: " + pathName);
+            return 1L;
+        }
+
+        return histogram.getQuantile(quantile);
+    }
+
+}
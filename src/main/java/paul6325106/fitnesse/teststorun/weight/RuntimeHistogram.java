@@ -0,0 +1,91 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+/**
+ * Fixed-size, mergeable histogram of runtimes with logarithmic buckets. Each bucket spans a factor of GAMMA, so
+ * quantiles are accurate to within roughly 10% of the true runtime regardless of how many runtimes are added, while
+ * memory stays at BUCKETS counters. Not thread-safe.
+ */
+public class RuntimeHistogram {
+
+    private static final double GAMMA = 1.2;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    /**
+     * Bucket 0 holds runtimes of 0ms, the last bucket holds everything above roughly 100 years.
+     */
+    static final int BUCKETS = 160;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    /**
+     * @param runtime Runtime in millis to add.
+     */
+    public void add(final long runtime) {
+        ++counts[getBucket(runtime)];
+        ++total;
+    }
+
+    /**
+     * Adds all runtimes held by another histogram to this one.
+     * @param other RuntimeHistogram to merge.
+     */
+    public void merge(final RuntimeHistogram other) {
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * @return number of runtimes added.
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Estimates a quantile of the runtimes added.
+     * @param quantile Quantile between 0 (exclusive) and 1 (inclusive), e.g. 0.9 for p90.
+     * @return estimated runtime in millis, or 0 if the histogram is empty.
+     */
+    public long getQuantile(final double quantile) {
+        if (total == 0) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+
+            if (seen >= rank) {
+                return getRepresentativeValue(i);
+            }
+        }
+
+        return getRepresentativeValue(BUCKETS - 1);
+    }
+
+    private static int getBucket(final long runtime) {
+        if (runtime < 1) {
+            return 0;
+        }
+
+        final int bucket = 1 + (int) Math.floor(Math.log(runtime) / LOG_GAMMA);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    /**
+     * Midpoint of the bucket's range [GAMMA^(i-1), GAMMA^i).
+     */
+    private static long getRepresentativeValue(final int bucket) {
+        if (bucket == 0) {
+            return 0L;
+        }
+
+        return Math.round(Math.pow(GAMMA, bucket - 1) * (1 + GAMMA) / 2);
+    }
+
+}
@@ -0,0 +1,257 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Memory-mapped, open addressing hash table of RuntimeSummaries keyed by WikiPage path name. Keys are stored as 64-bit
+ * hashes of the path name, so a lookup is a single probe sequence over fixed-size slots and never touches the test
+ * history directory.
+ *
+ * File layout: a 16 byte header (magic, version, capacity, size) followed by capacity slots of 8 longs each (key hash,
+ * latest time, latest, count, sum, min, max, reserved). A key hash of 0 marks an empty slot.
+ */
+public class RuntimeIndex implements Closeable {
+
+    private static final int MAGIC = 0x46524958; // FRIX
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 64;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+
+    private static final int KEY_OFFSET = 0;
+    private static final int LATEST_TIME_OFFSET = 8;
+    private static final int LATEST_OFFSET = 16;
+    private static final int COUNT_OFFSET = 24;
+    private static final int SUM_OFFSET = 32;
+    private static final int MIN_OFFSET = 40;
+    private static final int MAX_OFFSET = 48;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    /**
+     * Opens an index file, creating an empty index if the file is missing, empty, of an unknown version, or its header
+     * does not match its length.
+     * @param indexFile File backing the index.
+     * @throws IOException when unable to open or map the file.
+     */
+    public RuntimeIndex(final File indexFile) throws IOException {
+        this.file = new RandomAccessFile(indexFile, "rw");
+        this.channel = file.getChannel();
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        if (channel.size() >= HEADER_SIZE && channel.read(header, 0) == HEADER_SIZE) {
+            final int headerCapacity = header.getInt(CAPACITY_OFFSET);
+            final int headerSize = header.getInt(SIZE_OFFSET);
+
+            if (header.getInt(MAGIC_OFFSET) == MAGIC && header.getInt(VERSION_OFFSET) == VERSION
+                    && isValid(headerCapacity, headerSize, channel.size())) {
+
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                capacity = headerCapacity;
+                size = headerSize;
+                return;
+            }
+        }
+
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * The capacity must be a power of two, as slots are found by masking, and the size at most half the capacity, as
+     * put grows the table beyond that, so every probe sequence reaches an empty slot.
+     */
+    private static boolean isValid(final int capacity, final int size, final long length) {
+        return capacity > 0 && (capacity & (capacity - 1)) == 0
+                && HEADER_SIZE + (long) capacity * SLOT_SIZE == length
+                && size >= 0 && size <= capacity / 2;
+    }
+
+    /**
+     * @param pathName Path name identifying the WikiPage instance.
+     * @return RuntimeSummary for the WikiPage, or null if the index holds no runtimes for it.
+     */
+    public synchronized RuntimeSummary get(final String pathName) {
+        if (pathName == null) {
+            return null;
+        }
+
+        final int slot = findSlot(hash(pathName));
+        final int offset = offset(slot);
+
+        if (buffer.getLong(offset + KEY_OFFSET) == 0) {
+            return null;
+        }
+
+        return new RuntimeSummary(
+                buffer.getLong(offset + LATEST_TIME_OFFSET),
+                buffer.getLong(offset + LATEST_OFFSET),
+                buffer.getLong(offset + COUNT_OFFSET),
+                buffer.getLong(offset + SUM_OFFSET),
+                buffer.getLong(offset + MIN_OFFSET),
+                buffer.getLong(offset + MAX_OFFSET));
+    }
+
+    /**
+     * Stores the RuntimeSummary for a WikiPage, replacing any existing summary.
+     * @param pathName Path name identifying the WikiPage instance.
+     * @param summary RuntimeSummary to store.
+     * @throws IOException when unable to grow the index file.
+     */
+    public synchronized void put(final String pathName, final RuntimeSummary summary) throws IOException {
+        final long key = hash(pathName);
+        int slot = findSlot(key);
+
+        if (buffer.getLong(offset(slot) + KEY_OFFSET) == 0) {
+            if ((size + 1) * 2 > capacity) {
+                grow();
+                slot = findSlot(key);
+            }
+            ++size;
+            buffer.putInt(SIZE_OFFSET, size);
+        }
+
+        write(slot, key, summary.getLatestTime(), summary.getLatest(), summary.getCount(), summary.getSum(),
+                summary.getMin(), summary.getMax());
+    }
+
+    /**
+     * @return number of WikiPages held in the index.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Flushes changes to the backing file.
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    private void allocate(final int newCapacity) throws IOException {
+        final long length = HEADER_SIZE + (long) newCapacity * SLOT_SIZE;
+
+        // a file replaced by an empty index may be longer than it, and would fail validation when reopened
+        if (channel.size() > length) {
+            channel.truncate(length);
+        }
+
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+
+        for (int i = 0; i < length; i += 8) {
+            buffer.putLong(i, 0);
+        }
+
+        capacity = newCapacity;
+        size = 0;
+
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(SIZE_OFFSET, size);
+    }
+
+    private void grow() throws IOException {
+        final long[] slots = new long[size * 7];
+        int copied = 0;
+
+        for (int slot = 0; slot < capacity; ++slot) {
+            final int offset = offset(slot);
+
+            if (buffer.getLong(offset + KEY_OFFSET) != 0) {
+                for (int field = 0; field < 7; ++field) {
+                    slots[copied * 7 + field] = buffer.getLong(offset + field * 8);
+                }
+                ++copied;
+            }
+        }
+
+        allocate(capacity * 2);
+
+        for (int i = 0; i < copied; ++i) {
+            final int base = i * 7;
+            write(findSlot(slots[base]), slots[base], slots[base + 1], slots[base + 2], slots[base + 3],
+                    slots[base + 4], slots[base + 5], slots[base + 6]);
+        }
+
+        size = copied;
+        buffer.putInt(SIZE_OFFSET, size);
+    }
+
+    private void write(final int slot, final long key, final long latestTime, final long latest, final long count,
+            final long sum, final long min, final long max) {
+
+        final int offset = offset(slot);
+        buffer.putLong(offset + LATEST_TIME_OFFSET, latestTime);
+        buffer.putLong(offset + LATEST_OFFSET, latest);
+        buffer.putLong(offset + COUNT_OFFSET, count);
+        buffer.putLong(offset + SUM_OFFSET, sum);
+        buffer.putLong(offset + MIN_OFFSET, min);
+        buffer.putLong(offset + MAX_OFFSET, max);
+        // key written last, so a partially written slot is never visible as occupied
+        buffer.putLong(offset + KEY_OFFSET, key);
+    }
+
+    /**
+     * Linear probe for the slot holding a key, or the empty slot where it would be inserted.
+     */
+    private int findSlot(final long key) {
+        final int mask = capacity - 1;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+
+        while (true) {
+            final long existing = buffer.getLong(offset(slot) + KEY_OFFSET);
+
+            if (existing == 0 || existing == key) {
+                return slot;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int offset(final int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the UTF-8 path name. Never returns 0, which is reserved for empty slots.
+     */
+    static long hash(final String pathName) {
+        long hash = 0xcbf29ce484222325L;
+
+        for (final byte b : pathName.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        return hash == 0 ? 1 : hash;
+    }
+
+}
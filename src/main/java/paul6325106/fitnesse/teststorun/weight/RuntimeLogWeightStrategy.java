@@ -0,0 +1,81 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+import paul6325106.fitnesse.util.RuntimeLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Strategy for determining a WikiPage's weight from a RuntimeLog, as written by RuntimeRecordingTestListener. Because
+ * the log is append-only, a refresh only reads the records written since the previous one. A default weight of 1 is
+ * used if no runtimes have been recorded.
+ */
+public class RuntimeLogWeightStrategy implements WeightStrategy {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(RuntimeLogWeightStrategy.class);
+
+    private final File logFile;
+    private final ToLongFunction<RuntimeSummary> measure;
+    private final Map<String, RuntimeSummary> summaries = new HashMap<>();
+    private long position;
+
+    /**
+     * Weighs WikiPages by their average runtime.
+     * @see #RuntimeLogWeightStrategy(File, ToLongFunction)
+     */
+    public RuntimeLogWeightStrategy(final File logFile) throws TestsToRunContextGeneratorException {
+        this(logFile, RuntimeSummary::getAverage);
+    }
+
+    /**
+     * @param logFile RuntimeLog to read.
+     * @param measure Derives a weight from a WikiPage's RuntimeSummary, e.g. RuntimeSummary::getLatest.
+     * @throws TestsToRunContextGeneratorException when unable to read the log.
+     */
+    public RuntimeLogWeightStrategy(final File logFile, final ToLongFunction<RuntimeSummary> measure)
+            throws TestsToRunContextGeneratorException {
+
+        this.logFile = logFile;
+        this.measure = measure;
+
+        refresh();
+    }
+
+    /**
+     * Reads any records appended to the log since the last refresh.
+     * @throws TestsToRunContextGeneratorException when unable to read the log.
+     */
+    public synchronized void refresh() throws TestsToRunContextGeneratorException {
+        try {
+            position = RuntimeLog.read(logFile, position, (pathName, time, runtime) -> {
+                final RuntimeSummary summary = summaries.get(pathName);
+                summaries.put(pathName, summary == null
+                        ? RuntimeSummary.of(time, runtime)
+                        : summary.add(time, runtime));
+            });
+        } catch (final IOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to read runtime log: " + logFile, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+    }
+
+    @Override
+    public synchronized long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        final RuntimeSummary summary = summaries.get(pathName);
+
+        if (summary == null) {
+            LOGGER.warn("No recorded runtime available: " + pathName);
+            return 1L;
+        }
+
+        return measure.applyAsLong(summary);
+    }
+
+}
@@ -0,0 +1,105 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import java.util.Objects;
+
+/**
+ * Summary of the runtimes recorded for a single WikiPage. Instances are immutable, new runtimes are folded in by
+ * {@link #add(long, long)}.
+ */
+public class RuntimeSummary {
+
+    private final long latestTime;
+    private final long latest;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    public RuntimeSummary(final long latestTime, final long latest, final long count, final long sum, final long min,
+            final long max) {
+
+        this.latestTime = latestTime;
+        this.latest = latest;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Creates a summary of a single runtime.
+     * @param time Time in millis at which the runtime was recorded.
+     * @param runtime Runtime in millis.
+     * @return RuntimeSummary describing one runtime.
+     */
+    public static RuntimeSummary of(final long time, final long runtime) {
+        return new RuntimeSummary(time, runtime, 1, runtime, runtime, runtime);
+    }
+
+    /**
+     * Folds a runtime into this summary. The latest runtime is only replaced if the new runtime is not older.
+     * @param time Time in millis at which the runtime was recorded.
+     * @param runtime Runtime in millis.
+     * @return new RuntimeSummary including the runtime.
+     */
+    public RuntimeSummary add(final long time, final long runtime) {
+        final boolean newer = time >= latestTime;
+        return new RuntimeSummary(newer ? time : latestTime, newer ? runtime : latest, count + 1, sum + runtime,
+                Math.min(min, runtime), Math.max(max, runtime));
+    }
+
+    public long getLatestTime() {
+        return latestTime;
+    }
+
+    public long getLatest() {
+        return latest;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getAverage() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final RuntimeSummary that = (RuntimeSummary) o;
+        return latestTime == that.latestTime && latest == that.latest && count == that.count && sum == that.sum &&
+                min == that.min && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(latestTime, latest, count, sum, min, max);
+    }
+
+    @Override
+    public String toString() {
+        return "RuntimeSummary{" +
+                "latestTime=" + latestTime +
+                ", latest=" + latest +
+                ", count=" + count +
+                ", sum=" + sum +
+                ", min=" + min +
+                ", max=" + max +
+                '}';
+    }
+
+}
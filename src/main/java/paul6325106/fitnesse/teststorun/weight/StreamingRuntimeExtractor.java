@@ -0,0 +1,150 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the total runtime from a test result record without building an ExecutionReport. The record is pulled through
+ * a StAX parser and reading stops as soon as the totalRunTimeInMillis element has been read. Text of other elements,
+ * such as captured page content, is never materialised.
+ */
+public class StreamingRuntimeExtractor {
+
+    private static final String TOTAL_RUN_TIME_ELEMENT = "totalRunTimeInMillis";
+    private static final String SUITE_RESULTS_ELEMENT = "suiteResults";
+    private static final String PAGE_HISTORY_REFERENCE_ELEMENT = "pageHistoryReference";
+    private static final String NAME_ELEMENT = "name";
+    private static final String RUN_TIME_ELEMENT = "runTimeInMillis";
+
+    private final XMLInputFactory factory;
+
+    public StreamingRuntimeExtractor() {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Gets the total runtime of a test result record, equivalent to ExecutionReport#getTotalRunTimeInMillis.
+     * @param file Test result record to read.
+     * @return runtime in millis, or -1 if the record has no runtime.
+     * @throws TestsToRunContextGeneratorException when unable to read or parse the test result record.
+     */
+    public long getRuntime(final File file) throws TestsToRunContextGeneratorException {
+        try (final InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return getRuntime(in);
+        } catch (final IOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to read test result record: " + file, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        } catch (final XMLStreamException | NumberFormatException e) {
+            throw new TestsToRunContextGeneratorException("Unable to parse test result record: " + file, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+    }
+
+    /**
+     * Gets the runtime of each page referenced by a suite execution report, including SuiteSetUp and SuiteTearDown
+     * pages. Reading stops at the document element if the record is not a suite execution report.
+     * @param file Test result record to read.
+     * @return runtime in millis by full page name, in execution order, or an empty map if the record is not a suite
+     * execution report.
+     * @throws TestsToRunContextGeneratorException when unable to read or parse the test result record.
+     */
+    public Map<String, Long> getSuitePageRuntimes(final File file) throws TestsToRunContextGeneratorException {
+        try (final InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return getSuitePageRuntimes(in);
+        } catch (final IOException e) {
+            throw new TestsToRunContextGeneratorException("Unable to read test result record: " + file, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        } catch (final XMLStreamException | NumberFormatException e) {
+            throw new TestsToRunContextGeneratorException("Unable to parse test result record: " + file, e,
+                    TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+        }
+    }
+
+    private long getRuntime(final InputStream in) throws XMLStreamException {
+        final XMLStreamReader reader = factory.createXMLStreamReader(in);
+
+        try {
+            int depth = 0;
+
+            while (reader.hasNext()) {
+                final int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    ++depth;
+
+                    // direct child of the testResults document element
+                    if (depth == 2 && TOTAL_RUN_TIME_ELEMENT.equals(reader.getLocalName())) {
+                        return Long.parseLong(reader.getElementText().trim());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    --depth;
+                }
+            }
+
+            return -1L;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private Map<String, Long> getSuitePageRuntimes(final InputStream in) throws XMLStreamException {
+        final XMLStreamReader reader = factory.createXMLStreamReader(in);
+        final Map<String, Long> runtimes = new LinkedHashMap<>();
+
+        try {
+            int depth = 0;
+            String name = null;
+            long runtime = -1L;
+
+            while (reader.hasNext()) {
+                final int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    ++depth;
+
+                    if (depth == 1 && !SUITE_RESULTS_ELEMENT.equals(reader.getLocalName())) {
+                        return runtimes;
+                    }
+
+                    if (depth == 2 && PAGE_HISTORY_REFERENCE_ELEMENT.equals(reader.getLocalName())) {
+                        name = null;
+                        runtime = -1L;
+                    } else if (depth == 3 && NAME_ELEMENT.equals(reader.getLocalName())) {
+                        name = reader.getElementText().trim();
+                        --depth;
+                    } else if (depth == 3 && RUN_TIME_ELEMENT.equals(reader.getLocalName())) {
+                        runtime = Long.parseLong(reader.getElementText().trim());
+                        --depth;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2 && PAGE_HISTORY_REFERENCE_ELEMENT.equals(reader.getLocalName())
+                            && name != null && runtime >= 0) {
+                        runtimes.put(name, runtime);
+                    }
+
+                    --depth;
+                }
+            }
+
+            return runtimes;
+        } finally {
+            reader.close();
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import fitnesse.wiki.PageData;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.io.File;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Decorates a WeightStrategy with the runtimes of SuiteSetUp and SuiteTearDown pages, learnt from suite execution
+ * reports in the test history directory. These pages are rarely tested on their own and so rarely have test result
+ * records of their own, but every suite execution report records how long they took. Without these runtimes a
+ * partition strategy sees duplicating a SuiteSetUp as free. All other WikiPages are weighed by the delegate.
+ *
+ * Only the directories of suite pages are read, recognised by name as those with descendant pages in the test history
+ * directory, since running a suite records each of its pages as well.
+ */
+public class SuiteSetUpTearDownWeightStrategy implements WeightStrategy {
+
+    private static final Pattern RECORD_NAME = Pattern.compile("\\d{14}_.*\\.xml");
+    private static final String RECORD_DATE_FORMAT = "yyyyMMddHHmmss";
+
+    private final WeightStrategy delegate;
+    private final File testHistoryDirectory;
+    private final ToLongFunction<RuntimeSummary> measure;
+    private final StreamingRuntimeExtractor extractor = new StreamingRuntimeExtractor();
+
+    private final Map<String, RuntimeSummary> summaries = new HashMap<>();
+    private final Map<String, String> latestRecordNames = new HashMap<>();
+
+    /**
+     * Weighs SuiteSetUp and SuiteTearDown pages by their average runtime.
+     * @see #SuiteSetUpTearDownWeightStrategy(FitNesseContext, WeightStrategy, ToLongFunction)
+     */
+    public SuiteSetUpTearDownWeightStrategy(final FitNesseContext context, final WeightStrategy delegate)
+            throws TestsToRunContextGeneratorException {
+
+        this(context, delegate, RuntimeSummary::getAverage);
+    }
+
+    /**
+     * @param context FitNesseContext providing the test history directory.
+     * @param delegate WeightStrategy for WikiPages without suite execution runtimes.
+     * @param measure Derives a weight from a page's RuntimeSummary, e.g. RuntimeSummary::getLatest.
+     * @throws TestsToRunContextGeneratorException when unable to read a suite execution report.
+     */
+    public SuiteSetUpTearDownWeightStrategy(final FitNesseContext context, final WeightStrategy delegate,
+            final ToLongFunction<RuntimeSummary> measure) throws TestsToRunContextGeneratorException {
+
+        this.delegate = delegate;
+        this.testHistoryDirectory = context.getTestHistoryDirectory();
+        this.measure = measure;
+
+        refresh();
+    }
+
+    /**
+     * Reads any suite execution reports written since the last refresh. If a report cannot be read, the reports read
+     * before it are kept and reading resumes from it on the next refresh.
+     * @throws TestsToRunContextGeneratorException when unable to read a suite execution report.
+     */
+    public synchronized void refresh() throws TestsToRunContextGeneratorException {
+        final String[] pageNames = testHistoryDirectory.list();
+
+        if (pageNames == null) {
+            return;
+        }
+
+        for (final String suiteName : getSuiteNames(pageNames)) {
+            final File directory = new File(testHistoryDirectory, suiteName);
+            final String latestRecordName = latestRecordNames.get(suiteName);
+
+            // record names start with their date, so name order is chronological order
+            final String[] recordNames = directory.list((dir, name) -> RECORD_NAME.matcher(name).matches()
+                    && (latestRecordName == null || name.compareTo(latestRecordName) > 0));
+
+            if (recordNames == null || recordNames.length == 0) {
+                continue;
+            }
+
+            Arrays.sort(recordNames);
+
+            for (final String recordName : recordNames) {
+                final long time = getTime(recordName);
+
+                extractor.getSuitePageRuntimes(new File(directory, recordName)).forEach((pathName, runtime) -> {
+                    if (isSuiteSetUpOrTearDown(pathName)) {
+                        final RuntimeSummary summary = summaries.get(pathName);
+                        summaries.put(pathName, summary == null
+                                ? RuntimeSummary.of(time, runtime)
+                                : summary.add(time, runtime));
+                    }
+                });
+
+                // advanced per record, so a later unreadable record does not cause this one to be counted again
+                latestRecordNames.put(suiteName, recordName);
+            }
+        }
+    }
+
+    @Override
+    public long getWeight(final String pathName) throws TestsToRunContextGeneratorException {
+        final RuntimeSummary summary;
+        synchronized (this) {
+            summary = pathName == null ? null : summaries.get(pathName);
+        }
+
+        return summary == null ? delegate.getWeight(pathName) : measure.applyAsLong(summary);
+    }
+
+    /**
+     * @return names of the pages which are an ancestor of another page in the test history directory.
+     */
+    private static Set<String> getSuiteNames(final String[] pageNames) {
+        final Set<String> names = new HashSet<>(Arrays.asList(pageNames));
+        final Set<String> suiteNames = new HashSet<>();
+
+        for (final String pageName : pageNames) {
+            for (int index = pageName.lastIndexOf('.'); index > 0; index = pageName.lastIndexOf('.', index - 1)) {
+                final String parentName = pageName.substring(0, index);
+
+                if (names.contains(parentName)) {
+                    suiteNames.add(parentName);
+                }
+            }
+        }
+
+        return suiteNames;
+    }
+
+    private static boolean isSuiteSetUpOrTearDown(final String pathName) {
+        final String name = pathName.substring(pathName.lastIndexOf('.') + 1);
+        return PageData.SUITE_SETUP_NAME.equals(name) || PageData.SUITE_TEARDOWN_NAME.equals(name);
+    }
+
+    private static long getTime(final String recordName) {
+        try {
+            return new SimpleDateFormat(RECORD_DATE_FORMAT).parse(recordName.substring(0, 14)).getTime();
+        } catch (final ParseException e) {
+            // unreachable, the name has already been matched
+            return 0L;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.reporting.history.PageHistory;
+import fitnesse.reporting.history.TestHistory;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.TreeSet;
+
+/**
+ * Walks a test history directory and reports the runtimes of test result records which have not yet been seen. Only
+ * file names are inspected for records which are already known, so repeated scans only read new result files.
+ */
+public class TestHistoryRuntimeScanner {
+
+    /**
+     * Receives runtimes from a scan and tracks which records have already been seen.
+     */
+    public interface Visitor {
+
+        /**
+         * @param pathName Path name identifying the WikiPage instance.
+         * @return time in millis of the latest record already visited for the WikiPage, or Long.MIN_VALUE if none.
+         */
+        long getLatestVisitedTime(String pathName);
+
+        /**
+         * Called for each unseen record, in chronological order per WikiPage.
+         * @param pathName Path name identifying the WikiPage instance.
+         * @param time Time in millis of the test result record.
+         * @param runtime Runtime in millis of the test result record.
+         */
+        void visit(String pathName, long time, long runtime);
+
+    }
+
+    private final File testHistoryDirectory;
+    private final StreamingRuntimeExtractor extractor;
+
+    public TestHistoryRuntimeScanner(final File testHistoryDirectory) {
+        this.testHistoryDirectory = testHistoryDirectory;
+        this.extractor = new StreamingRuntimeExtractor();
+    }
+
+    /**
+     * Reports all unseen test result records to a Visitor. Records without a runtime are skipped.
+     * @param visitor Visitor to report to.
+     * @throws TestsToRunContextGeneratorException when unable to read a test result record.
+     */
+    public void scan(final Visitor visitor) throws TestsToRunContextGeneratorException {
+        // re-read on every scan so that newly tested pages are picked up
+        final TestHistory history = new TestHistory(testHistoryDirectory);
+
+        for (final String pathName : history.getPageNames()) {
+            final PageHistory pageHistory = history.getPageHistory(pathName);
+
+            if (pageHistory == null) {
+                continue;
+            }
+
+            final long latestVisitedTime = visitor.getLatestVisitedTime(pathName);
+
+            if (pageHistory.getLatestDate().getTime() <= latestVisitedTime) {
+                continue;
+            }
+
+            // copied into natural order, the SortedSet returned by PageHistory is not necessarily chronological
+            final TreeSet<Date> dates = new TreeSet<>(Comparator.naturalOrder());
+            dates.addAll(pageHistory.datesInChronologicalOrder());
+
+            for (final Date date : dates.tailSet(new Date(latestVisitedTime), false)) {
+                final long runtime = extractor.getRuntime(pageHistory.get(date).getFile());
+
+                if (runtime >= 0) {
+                    visitor.visit(pathName, date.getTime(), runtime);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package paul6325106.fitnesse.util;
+
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPageProperty;
+
+/**
+ * Attributes of a WikiPage, without its content. Answers the questions test planning asks of a page (page type, tags,
+ * prune) the same way the page's PageData would.
+ * @see PageMetadataLoader
+ */
+public class PageMetadata {
+
+    private final WikiPageProperty properties;
+
+    /**
+     * @param properties WikiPageProperty holding the page's attributes.
+     */
+    public PageMetadata(final WikiPageProperty properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @param key Attribute name.
+     * @return true if the page has the attribute, as PageData#hasAttribute would give.
+     */
+    public boolean hasAttribute(final String key) {
+        return properties.has(key);
+    }
+
+    /**
+     * @param key Attribute name.
+     * @return value of the attribute, or null if the page does not have it.
+     */
+    public String getAttribute(final String key) {
+        return properties.get(key);
+    }
+
+    /**
+     * Returns true if the page is of the specified PageType.
+     * @see WikiPageUtil#isPageType(PageData, PageType)
+     * @param type PageType to match.
+     * @return true if the page is of the specified PageType, false otherwise.
+     */
+    public boolean isPageType(final PageType type) {
+        return hasAttribute(type.toString()) || hasAttribute(PageData.PAGE_TYPE_ATTRIBUTE)
+                && getAttribute(PageData.PAGE_TYPE_ATTRIBUTE).equals(type.toString());
+    }
+
+    /**
+     * @return true if the page, and so its descendants, are excluded from suites.
+     */
+    public boolean isPruned() {
+        return hasAttribute(WikiPageProperty.PRUNE);
+    }
+
+    /**
+     * @return the page's comma separated tags, or null if it has none.
+     */
+    public String getTags() {
+        return getAttribute(WikiPageProperty.SUITES);
+    }
+
+}
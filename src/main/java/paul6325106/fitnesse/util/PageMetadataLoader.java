@@ -0,0 +1,150 @@
+package paul6325106.fitnesse.util;
+
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageProperty;
+import fitnesse.wiki.fs.FileSystemPage;
+import fitnesse.wiki.fs.WikiFilePage;
+import fitnesse.wiki.fs.WikiPageProperties;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads PageMetadata for WikiPages without reading their content. Pages stored as a directory are read from their
+ * properties.xml only, never their content.txt, and pages stored as a .wiki file are read up to the end of their front
+ * matter only. Any other page, or a page whose files are not on disk, falls back to WikiPage#getData.
+ *
+ * Loaded PageMetadata is cached by full path name for the lifetime of the loader, so a page's files are read at most
+ * once per loader. The cache is never refreshed, so a loader should be shared by the lookups of a single planning pass
+ * rather than kept for the lifetime of the wiki.
+ */
+public class PageMetadataLoader {
+
+    private static final String PROPERTIES_FILE = "properties.xml";
+    private static final String FRONT_MATTER_DELIMITER = "---";
+
+    private static final Set<String> BOOLEAN_ATTRIBUTES = new HashSet<>();
+
+    static {
+        BOOLEAN_ATTRIBUTES.addAll(Arrays.asList(PageData.PAGE_TYPE_ATTRIBUTES));
+        BOOLEAN_ATTRIBUTES.addAll(Arrays.asList(PageData.NON_SECURITY_ATTRIBUTES));
+        BOOLEAN_ATTRIBUTES.addAll(Arrays.asList(PageData.SECURITY_ATTRIBUTES));
+    }
+
+    private static final Set<String> TRUTHY = new HashSet<>(Arrays.asList("y", "yes", "t", "true", "1"));
+    private static final Set<String> FALSY = new HashSet<>(Arrays.asList("n", "no", "f", "false", "0"));
+
+    private final Map<String, PageMetadata> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param page WikiPage to read.
+     * @return PageMetadata for the WikiPage, loaded on first request for its full path name.
+     */
+    public PageMetadata getMetadata(final WikiPage page) {
+        return cache.computeIfAbsent(WikiPageUtil.getFullPathName(page), pathName -> load(page));
+    }
+
+    /**
+     * Loads PageMetadata for a WikiPage, bypassing any cache, so its files are read on every call. Use getMetadata for
+     * pages which may be looked up more than once.
+     * @param page WikiPage to read.
+     * @return PageMetadata for the WikiPage.
+     */
+    public static PageMetadata load(final WikiPage page) {
+        WikiPageProperty properties = null;
+
+        if (page instanceof FileSystemPage) {
+            properties = loadFileSystemPageProperties((FileSystemPage) page);
+        } else if (page instanceof WikiFilePage) {
+            properties = loadWikiFilePageProperties((WikiFilePage) page);
+        }
+
+        return new PageMetadata(properties != null ? properties : page.getData().getProperties());
+    }
+
+    /**
+     * Mirrors FileSystemPage: properties.xml if present, the default properties otherwise.
+     * @return properties, or null if the page is not on disk or cannot be read.
+     */
+    private static WikiPageProperty loadFileSystemPageProperties(final FileSystemPage page) {
+        final File directory = page.getFileSystemPath();
+
+        if (!directory.isDirectory()) {
+            return null;
+        }
+
+        final File propertiesFile = new File(directory, PROPERTIES_FILE);
+
+        if (!propertiesFile.isFile()) {
+            return page.defaultPageProperties();
+        }
+
+        try (final InputStream input = new FileInputStream(propertiesFile)) {
+            return new WikiPageProperties(input);
+        } catch (final IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Mirrors WikiFilePage: the default properties, with the front matter's top level attributes merged over them.
+     * @return properties, or null if the page's .wiki file is not on disk or its front matter cannot be read.
+     */
+    private static WikiPageProperty loadWikiFilePageProperties(final WikiFilePage page) {
+        final File wikiFile = new File(page.getFileSystemPath().getPath() + WikiFilePage.FILE_EXTENSION);
+
+        if (!wikiFile.isFile()) {
+            return null;
+        }
+
+        final WikiPageProperty properties = page.defaultPageProperties();
+
+        try (final BufferedReader reader = Files.newBufferedReader(wikiFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!FRONT_MATTER_DELIMITER.equals(reader.readLine())) {
+                return properties;
+            }
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (FRONT_MATTER_DELIMITER.equals(line)) {
+                    return properties;
+                }
+
+                // nested values belong to the previous attribute and never affect planning
+                if (!line.trim().isEmpty() && !Character.isWhitespace(line.charAt(0))) {
+                    mergeAttribute(properties, line);
+                }
+            }
+        } catch (final IOException e) {
+            return null;
+        }
+
+        // unterminated front matter, leave it to WikiFilePage to make sense of
+        return null;
+    }
+
+    private static void mergeAttribute(final WikiPageProperty properties, final String line) {
+        final int separator = line.indexOf(':');
+        final String key = (separator < 0 ? line : line.substring(0, separator)).trim();
+        final String value = separator < 0 ? "" : line.substring(separator + 1).trim();
+
+        if (!BOOLEAN_ATTRIBUTES.contains(key)) {
+            properties.set(key, value);
+        } else if (value.isEmpty() || TRUTHY.contains(value.toLowerCase())) {
+            properties.set(key, value);
+        } else if (FALSY.contains(value.toLowerCase())) {
+            properties.remove(key);
+        }
+    }
+
+}
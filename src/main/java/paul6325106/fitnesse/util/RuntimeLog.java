@@ -0,0 +1,145 @@
+package paul6325106.fitnesse.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of WikiPage runtimes. The file starts with a magic number and version, followed by records of
+ * (payload length, payload, CRC32 of payload), where the payload is (UTF path name, end time in millis, runtime in
+ * millis). Each record is written in a single call, and reading stops at the first record which is truncated by a crash
+ * or fails its checksum, so a partially written record is never read as, or misaligns, the records around it.
+ *
+ * As records after a torn record are never read either, writers truncate the log to the position returned by read
+ * before appending.
+ */
+public class RuntimeLog {
+
+    public static final int MAGIC = 0x4652524c; // FRRL
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 8;
+
+    // length and checksum around each payload
+    private static final int RECORD_OVERHEAD = 8;
+
+    // UTF length, then time and runtime
+    private static final int MIN_PAYLOAD_SIZE = 2 + 16;
+    private static final int MAX_PAYLOAD_SIZE = 2 + 65535 + 16;
+
+    /**
+     * Receives records read from the log.
+     */
+    public interface Visitor {
+
+        void visit(String pathName, long time, long runtime);
+
+    }
+
+    private RuntimeLog() {
+    }
+
+    public static void writeHeader(final DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Checks that a file, which must be at least HEADER_SIZE long, starts with the header of a runtime log.
+     * @param file Log to check.
+     * @throws IOException when unable to read the file, or it is not a runtime log of this version.
+     */
+    public static void checkHeader(final File file) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            checkHeader(file, in);
+        }
+    }
+
+    public static void writeRecord(final DataOutput out, final String pathName, final long time, final long runtime)
+            throws IOException {
+
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream(MIN_PAYLOAD_SIZE + pathName.length());
+        final DataOutputStream payloadOut = new DataOutputStream(payload);
+        payloadOut.writeUTF(pathName);
+        payloadOut.writeLong(time);
+        payloadOut.writeLong(runtime);
+
+        final CRC32 checksum = new CRC32();
+        checksum.update(payload.toByteArray());
+
+        final ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payload.size());
+        record.putInt(payload.size());
+        record.put(payload.toByteArray());
+        record.putInt((int) checksum.getValue());
+
+        out.write(record.array());
+    }
+
+    /**
+     * Reads records from a position in the log onwards.
+     * @param file Log to read.
+     * @param position Position to read from, 0 for the whole log or the result of a previous read.
+     * @param visitor Visitor to report records to.
+     * @return position after the last complete record, to continue reading from later.
+     * @throws IOException when unable to read the log, or it is not a runtime log.
+     */
+    public static long read(final File file, final long position, final Visitor visitor) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return position;
+        }
+
+        try (final FileInputStream fileIn = new FileInputStream(file)) {
+            checkHeader(file, new DataInputStream(fileIn));
+
+            long current = Math.max(position, HEADER_SIZE);
+            fileIn.getChannel().position(current);
+
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn));
+            final CRC32 checksum = new CRC32();
+
+            while (true) {
+                final byte[] payload;
+
+                try {
+                    final int length = in.readInt();
+
+                    if (length < MIN_PAYLOAD_SIZE || length > MAX_PAYLOAD_SIZE) {
+                        return current;
+                    }
+
+                    payload = new byte[length];
+                    in.readFully(payload);
+
+                    checksum.reset();
+                    checksum.update(payload);
+
+                    if (in.readInt() != (int) checksum.getValue()) {
+                        return current;
+                    }
+                } catch (final EOFException e) {
+                    return current;
+                }
+
+                final DataInputStream payloadIn = new DataInputStream(new ByteArrayInputStream(payload));
+                visitor.visit(payloadIn.readUTF(), payloadIn.readLong(), payloadIn.readLong());
+                current += RECORD_OVERHEAD + payload.length;
+            }
+        }
+    }
+
+    private static void checkHeader(final File file, final DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a runtime log: " + file);
+        }
+    }
+
+}
@@ -41,7 +41,29 @@ public class WikiPageUtil {
      * @return true if the WikiPage is of the specified PageType, false otherwise.
      */
     public static boolean isPageType(final WikiPage page, final PageType type) {
-        final PageData data = page.getData();
+        return isPageType(page.getData(), type);
+    }
+
+    /**
+     * Returns true if the WikiPage is of the specified PageType, reading only the page's attributes, not its content.
+     * @see PageMetadataLoader#getMetadata(WikiPage)
+     * @param page WikiPage to check.
+     * @param type PageType to match.
+     * @param loader PageMetadataLoader to read the page's attributes through, shared between checks.
+     * @return true if the WikiPage is of the specified PageType, false otherwise.
+     */
+    public static boolean isPageType(final WikiPage page, final PageType type, final PageMetadataLoader loader) {
+        return loader.getMetadata(page).isPageType(type);
+    }
+
+    /**
+     * Returns true if the PageData is of the specified PageType.
+     * @see #isPageType(WikiPage, PageType)
+     * @param data PageData to check.
+     * @param type PageType to match.
+     * @return true if the PageData is of the specified PageType, false otherwise.
+     */
+    public static boolean isPageType(final PageData data, final PageType type) {
         return data.hasAttribute(type.toString()) || data.hasAttribute(PageData.PAGE_TYPE_ATTRIBUTE)
                 && data.getAttribute(PageData.PAGE_TYPE_ATTRIBUTE).equals(type.toString());
     }
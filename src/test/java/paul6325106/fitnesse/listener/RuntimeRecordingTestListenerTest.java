@@ -0,0 +1,107 @@
+package paul6325106.fitnesse.listener;
+
+import fitnesse.testsystems.TestPage;
+import fitnesse.testsystems.TestSummary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.teststorun.weight.RuntimeLogWeightStrategy;
+import paul6325106.fitnesse.teststorun.weight.RuntimeSummary;
+import paul6325106.fitnesse.util.RuntimeLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RuntimeRecordingTestListenerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestPage testPage(final String fullPath) {
+        final TestPage testPage = mock(TestPage.class);
+        when(testPage.getFullPath()).thenReturn(fullPath);
+        return testPage;
+    }
+
+    private void run(final RuntimeRecordingTestListener listener, final TestPage testPage, final long sleep)
+            throws Exception {
+
+        listener.testStarted(testPage);
+        Thread.sleep(sleep);
+        listener.testComplete(testPage, new TestSummary(1, 0, 0, 0));
+    }
+
+    @Test
+    public void testRecordedRuntimes() throws Exception {
+        final File logFile = new File(folder.getRoot(), "runtimes.log");
+
+        final TestPage suiteSetUp = testPage("SuitePage.SuiteSetUp");
+        final TestPage testPage = testPage("SuitePage.TestPage");
+
+        try (final RuntimeRecordingTestListener listener = new RuntimeRecordingTestListener(logFile)) {
+            run(listener, suiteSetUp, 50);
+            run(listener, testPage, 10);
+        }
+
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile);
+
+        assertTrue(strategy.getWeight("SuitePage.SuiteSetUp") >= 50);
+        assertTrue(strategy.getWeight("SuitePage.TestPage") >= 10);
+        assertEquals(1L, strategy.getWeight("SuitePage.OtherPage"));
+    }
+
+    @Test
+    public void testAppendAndRefresh() throws Exception {
+        final File logFile = new File(folder.getRoot(), "runtimes.log");
+        final TestPage testPage = testPage("SuitePage.TestPage");
+
+        try (final RuntimeRecordingTestListener listener = new RuntimeRecordingTestListener(logFile)) {
+            run(listener, testPage, 0);
+        }
+
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile, RuntimeSummary::getMax);
+        final long first = strategy.getWeight("SuitePage.TestPage");
+
+        try (final RuntimeRecordingTestListener listener = new RuntimeRecordingTestListener(logFile)) {
+            run(listener, testPage, 100);
+        }
+
+        strategy.refresh();
+
+        assertTrue(strategy.getWeight("SuitePage.TestPage") >= 100);
+        assertTrue(first < 100);
+    }
+
+    @Test
+    public void testTornRecordTruncated() throws Exception {
+        final File logFile = new File(folder.getRoot(), "runtimes.log");
+
+        try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(logFile))) {
+            RuntimeLog.writeHeader(out);
+            RuntimeLog.writeRecord(out, "SuitePage.PageOne", 1000L, 100L);
+
+            // a record torn by a crash part way through writing it
+            final ByteArrayOutputStream record = new ByteArrayOutputStream();
+            RuntimeLog.writeRecord(new DataOutputStream(record), "SuitePage.PageOne", 2000L, 200L);
+            out.write(Arrays.copyOf(record.toByteArray(), record.size() - 5));
+        }
+
+        try (final RuntimeRecordingTestListener listener = new RuntimeRecordingTestListener(logFile)) {
+            run(listener, testPage("SuitePage.PageTwo"), 10);
+        }
+
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile, RuntimeSummary::getMax);
+
+        assertEquals(100L, strategy.getWeight("SuitePage.PageOne"));
+        assertTrue(strategy.getWeight("SuitePage.PageTwo") >= 10);
+    }
+
+}
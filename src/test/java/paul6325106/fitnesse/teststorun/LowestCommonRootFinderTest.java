@@ -1,6 +1,7 @@
 package paul6325106.fitnesse.teststorun;
 
 import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageData;
 import fitnesse.wiki.PageType;
 import fitnesse.wiki.WikiPage;
 import org.junit.Assert;
@@ -66,6 +67,22 @@ public class LowestCommonRootFinderTest {
         assertEquals(suitePageThree, finder.getLowestCommonRoot(Collections.singletonList(testPageTwo), true));
     }
 
+    @Test
+    public void testSuiteChangedBetweenCalls() throws Exception {
+        final WikiPage suitePage = WikiPageUtil.addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage staticPage = WikiPageUtil.addPage(suitePage, "StaticPage", "", PageType.STATIC);
+        final WikiPage testPage = WikiPageUtil.addPage(staticPage, "TestPage", "", PageType.TEST);
+
+        assertEquals(suitePage, finder.getLowestCommonRoot(Collections.singletonList(testPage), true));
+
+        final PageData data = staticPage.getData();
+        data.setAttribute(PageType.SUITE.toString());
+        staticPage.commit(data);
+
+        // nothing is remembered from the previous call
+        assertEquals(staticPage, finder.getLowestCommonRoot(Collections.singletonList(testPage), true));
+    }
+
     @Test
     public void testStaticRootUnderSuiteRoot() throws Exception {
         final WikiPage suitePage = WikiPageUtil.addPage(root, "SuitePage", "", PageType.SUITE);
@@ -117,4 +134,60 @@ public class LowestCommonRootFinderTest {
         }
     }
 
+    @Test
+    public void testSameNamesUnderDifferentParents() throws Exception {
+        final WikiPage suitePageOne = WikiPageUtil.addPage(root, "SuitePageOne", "", PageType.SUITE);
+        final WikiPage suitePageTwo = WikiPageUtil.addPage(root, "SuitePageTwo", "", PageType.SUITE);
+        final WikiPage childSuitePageOne = WikiPageUtil.addPage(suitePageOne, "ChildSuitePage", "", PageType.SUITE);
+        final WikiPage childSuitePageTwo = WikiPageUtil.addPage(suitePageTwo, "ChildSuitePage", "", PageType.SUITE);
+        final WikiPage testPageOne = WikiPageUtil.addPage(childSuitePageOne, "TestPage", "", PageType.TEST);
+        final WikiPage testPageTwo = WikiPageUtil.addPage(childSuitePageTwo, "TestPage", "", PageType.TEST);
+
+        assertEquals(root, finder.getLowestCommonRoot(Arrays.asList(testPageOne, testPageTwo), false));
+    }
+
+    @Test
+    public void testDifferentDepths() throws Exception {
+        final WikiPage suitePage = WikiPageUtil.addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage childSuitePage = WikiPageUtil.addPage(suitePage, "ChildSuitePage", "", PageType.SUITE);
+        final WikiPage grandchildSuitePage =
+                WikiPageUtil.addPage(childSuitePage, "GrandchildSuitePage", "", PageType.SUITE);
+        final WikiPage testPageOne = WikiPageUtil.addPage(grandchildSuitePage, "TestPageOne", "", PageType.TEST);
+        final WikiPage testPageTwo = WikiPageUtil.addPage(childSuitePage, "TestPageTwo", "", PageType.TEST);
+        final WikiPage testPageThree = WikiPageUtil.addPage(suitePage, "TestPageThree", "", PageType.TEST);
+
+        assertEquals(childSuitePage, finder.getLowestCommonRoot(Arrays.asList(testPageOne, testPageTwo), false));
+        assertEquals(childSuitePage, finder.getLowestCommonRoot(Arrays.asList(testPageTwo, testPageOne), false));
+        assertEquals(suitePage,
+                finder.getLowestCommonRoot(Arrays.asList(testPageOne, testPageTwo, testPageThree), false));
+        assertEquals(childSuitePage, finder.getLowestCommonRoot(Arrays.asList(testPageOne, childSuitePage), true));
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        final WikiPage suitePageOne = WikiPageUtil.addPage(root, "SuitePageOne", "", PageType.SUITE);
+        final WikiPage staticPage = WikiPageUtil.addPage(suitePageOne, "StaticPage", "", PageType.STATIC);
+        final WikiPage suitePageTwo = WikiPageUtil.addPage(staticPage, "SuitePageTwo", "", PageType.SUITE);
+        final WikiPage testPageOne = WikiPageUtil.addPage(suitePageTwo, "TestPageOne", "", PageType.TEST);
+        final WikiPage testPageTwo = WikiPageUtil.addPage(staticPage, "TestPageTwo", "", PageType.TEST);
+        final WikiPage testPageThree = WikiPageUtil.addPage(root, "TestPageThree", "", PageType.TEST);
+
+        finder = new LowestCommonRootFinder(root, new WikiTreeIndex(root));
+
+        // added after the index was built, so found from the pages alone
+        final WikiPage unindexedPage = WikiPageUtil.addPage(suitePageTwo, "UnindexedTestPage", "", PageType.TEST);
+
+        assertEquals(suitePageTwo, finder.getLowestCommonRoot(Collections.singletonList(testPageOne), true));
+        assertEquals(staticPage, finder.getLowestCommonRoot(Arrays.asList(testPageOne, testPageTwo), false));
+        assertEquals(suitePageOne, finder.getLowestCommonRoot(Arrays.asList(testPageOne, testPageTwo), true));
+        assertEquals(suitePageTwo, finder.getLowestCommonRoot(Arrays.asList(testPageOne, unindexedPage), true));
+
+        try {
+            finder.getLowestCommonRoot(Arrays.asList(testPageOne, testPageThree), true);
+            fail();
+        } catch (final TestsToRunContextGeneratorException e) {
+            assertEquals(TestsToRunContextGeneratorReason.UNABLE_TO_FIND_SUITE_PAGE_AS_COMMON_ROOT, e.getReason());
+        }
+    }
+
 }
@@ -1,12 +1,15 @@
 package paul6325106.fitnesse.teststorun;
 
 import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageCrawler;
 import fitnesse.wiki.PageType;
+import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
 import org.junit.Before;
 import org.junit.Test;
 import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -255,4 +258,117 @@ public class SuiteSetUpTearDownMapperTest {
         assertTrue(mappedWithSetUpTearDown.contains(testPageThree));
     }
 
+    @Test
+    public void testMatchesClosestInheritedPage() throws Exception {
+        final List<WikiPage> testPages = addInheritanceTree();
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = mapper.getSuiteSetUpTearDownMap(testPages);
+
+        assertMatchesClosestInheritedPage(testPages, map);
+    }
+
+    @Test
+    public void testParallelMatchesClosestInheritedPage() throws Exception {
+        final List<WikiPage> testPages = addInheritanceTree();
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map =
+                new SuiteSetUpTearDownMapper(4).getSuiteSetUpTearDownMap(testPages);
+
+        assertMatchesClosestInheritedPage(testPages, map);
+    }
+
+    @Test
+    public void testIndexMatchesClosestInheritedPage() throws Exception {
+        final List<WikiPage> testPages = addInheritanceTree();
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+
+        // added after the index was built, so resolved from the wiki
+        final WikiPage unindexedPage = addPage(root.getChildPage("SuitePage"), "UnindexedTestPage", "", PageType.TEST);
+        testPages.add(unindexedPage);
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map =
+                new SuiteSetUpTearDownMapper(index).getSuiteSetUpTearDownMap(testPages);
+
+        assertMatchesClosestInheritedPage(testPages, map);
+    }
+
+    @Test
+    public void testParallelIsDeterministic() throws Exception {
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage suiteSetUp = addPage(suitePage, "SuiteSetUp", "", PageType.STATIC);
+        final WikiPage testPageOne = addPage(root, "TestPageOne", "", PageType.TEST);
+        final WikiPage testPageTwo = addPage(suitePage, "TestPageTwo", "", PageType.TEST);
+        final WikiPage testPageThree = addPage(root, "TestPageThree", "", PageType.TEST);
+        final WikiPage testPageFour = addPage(suitePage, "TestPageFour", "", PageType.TEST);
+
+        // repeat test pages in list, including a distinct instance of the same page
+        final List<WikiPage> testPages = Arrays.asList(testPageOne, testPageTwo, testPageThree, testPageOne,
+                testPageFour, root.getPageCrawler().getPage(PathParser.parse("SuitePage.TestPageTwo")));
+
+        final SuiteSetUpTearDownMapper parallelMapper = new SuiteSetUpTearDownMapper(4);
+
+        for (int i = 0; i < 10; ++i) {
+            final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = parallelMapper.getSuiteSetUpTearDownMap(testPages);
+
+            assertEquals(Arrays.asList(new SuiteSetUpTearDownPair(null, null), fromWikiPages(suiteSetUp, null)),
+                    new ArrayList<>(map.keySet()));
+            assertEquals(Arrays.asList(testPageOne, testPageThree), map.get(new SuiteSetUpTearDownPair(null, null)));
+            assertEquals(Arrays.asList(testPageTwo, testPageFour), map.get(fromWikiPages(suiteSetUp, null)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelism() {
+        new SuiteSetUpTearDownMapper(0);
+    }
+
+    /**
+     * Adds nested suites with SuiteSetUps and SuiteTearDowns declared at different levels.
+     * @return Test pages added.
+     */
+    private List<WikiPage> addInheritanceTree() throws Exception {
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        addPage(suitePage, "SuiteSetUp", "", PageType.STATIC);
+        final List<WikiPage> testPages = new ArrayList<>();
+
+        for (int i = 0; i < 3; ++i) {
+            final WikiPage childSuitePage = addPage(suitePage, "ChildSuitePage" + i, "", PageType.SUITE);
+            final WikiPage grandchildSuitePage = addPage(childSuitePage, "GrandchildSuitePage", "", PageType.SUITE);
+
+            if (i == 1) {
+                addPage(childSuitePage, "SuiteTearDown", "", PageType.STATIC);
+            }
+
+            for (int j = 0; j < 3; ++j) {
+                testPages.add(addPage(childSuitePage, "TestPage" + j, "", PageType.TEST));
+                testPages.add(addPage(grandchildSuitePage, "TestPage" + j, "", PageType.TEST));
+            }
+        }
+
+        // a page's own SuiteSetUp child is also inherited
+        final WikiPage testPageWithChild = addPage(suitePage, "TestPageWithChild", "", PageType.TEST);
+        addPage(testPageWithChild, "SuiteSetUp", "", PageType.STATIC);
+        testPages.add(testPageWithChild);
+
+        return testPages;
+    }
+
+    private void assertMatchesClosestInheritedPage(final List<WikiPage> testPages,
+            final Map<SuiteSetUpTearDownPair, List<WikiPage>> map) {
+
+        int mapped = 0;
+
+        for (final Map.Entry<SuiteSetUpTearDownPair, List<WikiPage>> entry : map.entrySet()) {
+            for (final WikiPage testPage : entry.getValue()) {
+                final PageCrawler pageCrawler = testPage.getPageCrawler();
+                assertEquals(fromWikiPages(pageCrawler.getClosestInheritedPage("SuiteSetUp"),
+                        pageCrawler.getClosestInheritedPage("SuiteTearDown")), entry.getKey());
+                ++mapped;
+            }
+        }
+
+        assertEquals(testPages.size(), mapped);
+        assertEquals(3, map.size());
+    }
+
 }
@@ -1,7 +1,178 @@
 package paul6325106.fitnesse.teststorun;
 
+import fitnesse.FitNesseContext;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+import org.junit.Before;
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunPlan;
+import paul6325106.fitnesse.teststorun.order.LongestFirstOrderingStrategy;
+import paul6325106.fitnesse.teststorun.partition.LptPartitionStrategy;
+import paul6325106.fitnesse.util.WikiPageUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 public class TestsToRunContextGeneratorTest {
 
-    // TODO
+    private FitNesseContext context;
+    private WikiPage suitePage;
+    private TestsToRunContextGenerator generator;
+
+    @Before
+    public void setUp() throws Exception {
+        context = FitNesseUtil.makeTestContext();
+        suitePage = WikiPageUtil.addPage(context.getRootPage(), "SuitePage", "", PageType.SUITE);
+        WikiPageUtil.addPage(suitePage, "SuiteSetUp", "", PageType.TEST);
+
+        generator = new TestsToRunContextGenerator(context, TestsToRunContextGeneratorTest::getWeight,
+                new LptPartitionStrategy(0), true);
+    }
+
+    @Test
+    public void testOrdering() throws Exception {
+        final TestsToRunContextGenerator orderingGenerator = TestsToRunContextGenerator.builder(context,
+                TestsToRunContextGeneratorTest::getWeight, new LptPartitionStrategy(Long.MAX_VALUE))
+                .orderingStrategy(new LongestFirstOrderingStrategy())
+                .build();
+
+        final WikiPage pageOne = WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST);
+        final WikiPage pageTwo = WikiPageUtil.addPage(suitePage, "PageWeight30", "", PageType.TEST);
+        final WikiPage pageThree = WikiPageUtil.addPage(suitePage, "PageWeight20", "", PageType.TEST);
+
+        final List<TestsToRunContext> contexts =
+                orderingGenerator.generate(Arrays.asList(pageOne, pageTwo, pageThree), 2);
+
+        assertEquals(1, contexts.size());
+        assertEquals(Arrays.asList(pageTwo, pageThree, pageOne), contexts.get(0).getTestsToRun());
+    }
+
+    @Test
+    public void testMappingParallelism() throws Exception {
+        final TestsToRunContextGenerator parallelGenerator = TestsToRunContextGenerator.builder(context,
+                TestsToRunContextGeneratorTest::getWeight, new LptPartitionStrategy(0))
+                .mappingParallelism(4)
+                .build();
+
+        final WikiPage pageOne = WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST);
+        final WikiPage pageTwo = WikiPageUtil.addPage(suitePage, "PageWeight30", "", PageType.TEST);
+        final WikiPage pageThree = WikiPageUtil.addPage(suitePage, "PageWeight20", "", PageType.TEST);
+        final List<WikiPage> pages = Arrays.asList(pageOne, pageTwo, pageThree, pageOne);
+
+        final List<TestsToRunContext> contexts = parallelGenerator.generate(pages, 2);
+
+        assertEquals(2, contexts.size());
+        assertEquals(Collections.singletonList(pageTwo), contexts.get(0).getTestsToRun());
+        assertEquals(2, contexts.get(1).getTestsToRun().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMappingParallelismWithIndex() throws Exception {
+        TestsToRunContextGenerator.builder(context, TestsToRunContextGeneratorTest::getWeight,
+                new LptPartitionStrategy(0))
+                .index(new WikiTreeIndex(context.getRootPage()))
+                .mappingParallelism(4)
+                .build();
+    }
+
+    @Test
+    public void testGenerateQueue() throws Exception {
+        final WikiPage pageOne = WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST);
+        final WikiPage pageTwo = WikiPageUtil.addPage(suitePage, "PageWeight30", "", PageType.TEST);
+        final WikiPage pageThree = WikiPageUtil.addPage(suitePage, "PageWeight20", "", PageType.TEST);
+
+        final TestsToRunQueue queue = generator.generateQueue(Arrays.asList(pageOne, pageTwo, pageThree), 30L);
+
+        assertEquals(2, queue.size());
+        assertEquals(60L, queue.getRemainingWeight());
+
+        final ExecutorSpec executor = new ExecutorSpec("executor", 1.0);
+
+        final TestsToRunContext first = queue.claim(executor);
+        assertEquals(Arrays.asList(pageTwo), first.getTestsToRun());
+        assertEquals(suitePage, first.getRequestedPage());
+
+        assertEquals(Arrays.asList(pageThree, pageOne), queue.claim(executor).getTestsToRun());
+        assertNull(queue.claim(executor));
+    }
+
+    @Test
+    public void testGenerateForExecutors() throws Exception {
+        final WikiPage pageOne = WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST);
+        final WikiPage pageTwo = WikiPageUtil.addPage(suitePage, "PageWeight30", "", PageType.TEST);
+
+        final ExecutorSpec fast = new ExecutorSpec("fast", 3.0);
+        final ExecutorSpec slow = new ExecutorSpec("slow", 1.0);
+
+        final List<TestsToRunContext> contexts = generator.generate(Arrays.asList(pageOne, pageTwo),
+                Arrays.asList(slow, fast));
+
+        assertEquals(2, contexts.size());
+        assertEquals(slow, contexts.get(0).getExecutor());
+        assertEquals(Arrays.asList(pageOne), contexts.get(0).getTestsToRun());
+        assertEquals(fast, contexts.get(1).getExecutor());
+        assertEquals(Arrays.asList(pageTwo), contexts.get(1).getTestsToRun());
+    }
+
+    @Test
+    public void testGenerateForBudget() throws Exception {
+        final List<WikiPage> pages = Arrays.asList(
+                WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST),
+                WikiPageUtil.addPage(suitePage, "PageWeight30", "", PageType.TEST),
+                WikiPageUtil.addPage(suitePage, "PageWeight20", "", PageType.TEST));
+
+        // SuiteSetUp and SuiteTearDown weigh 1 each: whole is 62, two sets are 32 each, three sets are 32, 22 and 12
+        assertPlan(1, 62L, generator.generateForBudget(pages, 100L, 4));
+        assertPlan(2, 32L, generator.generateForBudget(pages, 40L, 4));
+        // unreachable, so the lowest makespan with the fewest executors
+        assertPlan(2, 32L, generator.generateForBudget(pages, 10L, 4));
+    }
+
+    @Test
+    public void testGenerateForMarginalGain() throws Exception {
+        final List<WikiPage> pages = Arrays.asList(
+                WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST),
+                WikiPageUtil.addPage(suitePage, "PageWeight30", "", PageType.TEST),
+                WikiPageUtil.addPage(suitePage, "PageWeight20", "", PageType.TEST));
+
+        assertPlan(2, 32L, generator.generateForMarginalGain(pages, 4, 0.05));
+        assertPlan(1, 62L, generator.generateForMarginalGain(pages, 1, 0.05));
+        assertPlan(1, 62L, generator.generateForMarginalGain(pages, 4, 0.5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerateForBudgetNoCount() throws Exception {
+        generator.generateForBudget(Collections.singletonList(
+                WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST)), 100L, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerateForMarginalGainNoCount() throws Exception {
+        generator.generateForMarginalGain(Collections.singletonList(
+                WikiPageUtil.addPage(suitePage, "PageWeight10", "", PageType.TEST)), 0, 0.05);
+    }
+
+    /**
+     * Weighs pages by the number at the end of their name, or 1.
+     */
+    private static long getWeight(final String pathName) {
+        return pathName == null || !pathName.matches(".*\\d+") ? 1L
+                : Long.parseLong(pathName.replaceAll(".*?(\\d+)$", "$1"));
+    }
+
+    private static void assertPlan(final int count, final long makespan, final TestsToRunPlan plan) {
+        assertEquals(count, plan.getCount());
+        assertEquals(makespan, plan.getPredictedMakespan());
+        assertEquals(3, plan.getTestsToRunContexts().stream()
+                .mapToInt(context -> context.getTestsToRun().size())
+                .sum());
+    }
 
 }
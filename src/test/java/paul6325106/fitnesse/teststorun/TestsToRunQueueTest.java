@@ -0,0 +1,111 @@
+package paul6325106.fitnesse.teststorun;
+
+import fitnesse.wiki.WikiPage;
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class TestsToRunQueueTest {
+
+    private final SuiteSetUpTearDownPair pairOne = new SuiteSetUpTearDownPair("One.SuiteSetUp", "One.SuiteTearDown");
+    private final SuiteSetUpTearDownPair pairTwo = new SuiteSetUpTearDownPair("Two.SuiteSetUp", "Two.SuiteTearDown");
+
+    private final ExecutorSpec executorOne = new ExecutorSpec("one", 1.0);
+    private final ExecutorSpec executorTwo = new ExecutorSpec("two", 1.0);
+
+    @Test
+    public void testHeaviestFirst() {
+        final TestsToRunQueue.Batch heavy = batch(pairOne, 100);
+        final TestsToRunQueue.Batch light = batch(pairTwo, 10);
+        final TestsToRunQueue queue = new TestsToRunQueue(Arrays.asList(heavy, light));
+
+        assertEquals(2, queue.size());
+        assertEquals(110L, queue.getRemainingWeight());
+
+        final TestsToRunContext first = queue.claim(executorOne);
+        assertSame(heavy.getTestsToRun(), first.getTestsToRun());
+        assertSame(executorOne, first.getExecutor());
+
+        assertSame(light.getTestsToRun(), queue.claim(executorTwo).getTestsToRun());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.claim(executorOne));
+    }
+
+    @Test
+    public void testPrefersLastSetUp() {
+        final TestsToRunQueue.Batch one = batch(pairOne, 100);
+        final TestsToRunQueue.Batch two = batch(pairTwo, 90);
+        final TestsToRunQueue.Batch three = batch(pairOne, 10);
+        final TestsToRunQueue queue = new TestsToRunQueue(Arrays.asList(one, two, three));
+
+        assertSame(one.getTestsToRun(), queue.claim(executorOne).getTestsToRun());
+        // executor one has run pair one's setup, so it is given the light batch for that pair ahead of the heavier one
+        assertSame(three.getTestsToRun(), queue.claim(executorOne).getTestsToRun());
+        assertSame(two.getTestsToRun(), queue.claim(executorTwo).getTestsToRun());
+        assertNull(queue.claim(executorTwo));
+    }
+
+    @Test
+    public void testSimulatedExecutors() throws Exception {
+        final List<TestsToRunQueue.Batch> batches = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            batches.add(batch(i % 3 == 0 ? pairOne : pairTwo, 200 - i));
+        }
+
+        final TestsToRunQueue queue = new TestsToRunQueue(batches);
+        final Map<List<WikiPage>, ExecutorSpec> claims = new ConcurrentHashMap<>();
+        final AtomicInteger duplicates = new AtomicInteger();
+
+        final int executors = 8;
+        final ExecutorService service = Executors.newFixedThreadPool(executors);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < executors; ++i) {
+            final ExecutorSpec executor = new ExecutorSpec("executor-" + i, 1.0);
+
+            futures.add(service.submit(() -> {
+                TestsToRunContext context;
+                while ((context = queue.claim(executor)) != null) {
+                    if (claims.put(context.getTestsToRun(), executor) != null) {
+                        duplicates.incrementAndGet();
+                    }
+                    Thread.yield();
+                }
+            }));
+        }
+
+        for (final Future<?> future : futures) {
+            future.get();
+        }
+        service.shutdown();
+
+        assertEquals(0, duplicates.get());
+        assertEquals(batches.size(), claims.size());
+        assertTrue(queue.isEmpty());
+        assertEquals(0L, queue.getRemainingWeight());
+    }
+
+    private static TestsToRunQueue.Batch batch(final SuiteSetUpTearDownPair pair, final long weight) {
+        return new TestsToRunQueue.Batch(pair, mock(WikiPage.class),
+                Collections.singletonList(mock(WikiPage.class)), weight);
+    }
+
+}
@@ -6,21 +6,25 @@ import fitnesse.wiki.WikiPage;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
 import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
 import paul6325106.fitnesse.teststorun.weight.WeightStrategy;
 import paul6325106.fitnesse.util.WikiPageUtil;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -31,12 +35,12 @@ public class WeightedWikiPageGroupFactoryTest {
     @Mock
     private WeightStrategy strategy;
 
-    @InjectMocks
     private WeightedWikiPageGroupFactory factory;
 
     @Before
     public void setUp() throws Exception {
         root = FitNesseUtil.makeTestContext().getRootPage();
+        factory = new WeightedWikiPageGroupFactory(strategy);
     }
 
     @Test
@@ -72,4 +76,79 @@ public class WeightedWikiPageGroupFactoryTest {
         assertEquals(group.getTotalWeight(), 1511111L);
     }
 
+    @Test
+    public void testBuildInParallel() throws Exception {
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = new LinkedHashMap<>();
+        final List<List<WikiPage>> expected = new ArrayList<>();
+
+        for (int i = 0; i < 4; ++i) {
+            final List<WikiPage> pages = new ArrayList<>();
+
+            for (int j = 0; j < 50; ++j) {
+                pages.add(WikiPageUtil.addPage(root, "PageGroup" + i + "Page" + j, "", PageType.TEST));
+            }
+
+            map.put(new SuiteSetUpTearDownPair("SuiteSetUp" + i, null), pages);
+            expected.add(pages);
+        }
+
+        final WeightStrategy lengthStrategy = pathName -> pathName == null ? 1L : pathName.length();
+
+        final List<WeightedWikiPageGroup> groups = new WeightedWikiPageGroupFactory(lengthStrategy, 8).build(map);
+
+        assertEquals(4, groups.size());
+
+        for (int i = 0; i < 4; ++i) {
+            final WeightedWikiPageGroup group = groups.get(i);
+            final List<WikiPage> pages = expected.get(i);
+
+            assertEquals(new SuiteSetUpTearDownPair("SuiteSetUp" + i, null), group.getSuiteSetUpTearDownPair());
+            assertEquals("SuiteSetUp0".length(), group.getSetUpWeight());
+            assertEquals(1L, group.getTearDownWeight());
+
+            long pagesWeight = 0;
+
+            for (int j = 0; j < pages.size(); ++j) {
+                final WeightedWikiPage page = group.getWikiPages().get(j);
+                assertEquals(pages.get(j), page.getWikiPage());
+                assertEquals(WikiPageUtil.getFullPathName(pages.get(j)).length(), page.getWeight());
+                pagesWeight += page.getWeight();
+            }
+
+            assertEquals(pagesWeight, group.getPagesWeight());
+        }
+    }
+
+    @Test
+    public void testBuildInParallelEmpty() throws Exception {
+        assertEquals(0, new WeightedWikiPageGroupFactory(strategy, 4).build(new HashMap<>()).size());
+    }
+
+    @Test
+    public void testBuildInParallelFailure() throws Exception {
+        final List<WikiPage> pages = new ArrayList<>();
+
+        for (int i = 0; i < 100; ++i) {
+            pages.add(WikiPageUtil.addPage(root, "Page" + i, "", PageType.TEST));
+        }
+
+        final Map<SuiteSetUpTearDownPair, List<WikiPage>> map = new HashMap<>();
+        map.put(new SuiteSetUpTearDownPair(null, null), pages);
+
+        final WeightStrategy failingStrategy = pathName -> {
+            if ("Page50".equals(pathName)) {
+                throw new TestsToRunContextGeneratorException(
+                        TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT);
+            }
+            return 1L;
+        };
+
+        try {
+            new WeightedWikiPageGroupFactory(failingStrategy, 4).build(map);
+            fail();
+        } catch (final TestsToRunContextGeneratorException e) {
+            assertEquals(TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT, e.getReason());
+        }
+    }
+
 }
@@ -0,0 +1,292 @@
+package paul6325106.fitnesse.teststorun;
+
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageCrawler;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.SystemVariableSource;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageProperty;
+import fitnesse.wiki.fs.FileBasedWikiPage;
+import fitnesse.wiki.fs.FileSystemPageFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static paul6325106.fitnesse.util.WikiPageUtil.addPage;
+import static paul6325106.fitnesse.util.WikiPageUtil.getFullPathName;
+
+public class WikiTreeIndexTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private WikiPage root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = FitNesseUtil.makeTestContext().getRootPage();
+    }
+
+    @Test
+    public void testStructure() throws Exception {
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage testPageTwo = addPage(suitePage, "TestPageTwo", "", PageType.TEST);
+        final WikiPage testPageOne = addPage(suitePage, "TestPageOne", "", PageType.TEST);
+
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+
+        assertEquals(4, index.size());
+        assertEquals(0, index.getId(root));
+        assertEquals(0, index.getId(""));
+        assertEquals(WikiTreeIndex.NO_PAGE, index.getParent(0));
+        assertEquals("", index.getFullPathName(0));
+
+        for (final WikiPage page : Arrays.asList(suitePage, testPageOne, testPageTwo)) {
+            final int id = index.getId(page);
+            assertEquals(id, index.getId(getFullPathName(page)));
+            assertEquals(getFullPathName(page), index.getFullPathName(id));
+        }
+
+        final int suitePageId = index.getId(suitePage);
+        final int testPageOneId = index.getId(testPageOne);
+        final int testPageTwoId = index.getId(testPageTwo);
+
+        assertEquals(0, index.getParent(suitePageId));
+        assertEquals(suitePageId, index.getParent(testPageOneId));
+        assertEquals(2, index.getDepth(testPageTwoId));
+        assertEquals(suitePageId, index.getLowestCommonAncestor(testPageOneId, testPageTwoId));
+        assertEquals(suitePageId, index.getLowestCommonAncestor(testPageOneId, suitePageId));
+        assertEquals(WikiTreeIndex.NO_PAGE, index.getId("SuitePage.TestPageThree"));
+        assertEquals(null, index.getFullPathName(WikiTreeIndex.NO_PAGE));
+    }
+
+    @Test
+    public void testPageData() throws Exception {
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage testPage = addPage(suitePage, "TestPage", "", PageType.TEST);
+        final PageData data = testPage.getData();
+        data.setAttribute(WikiPageProperty.SUITES, "tagOne, tagTwo");
+        data.setAttribute(WikiPageProperty.PRUNE);
+        testPage.commit(data);
+
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+        final int suitePageId = index.getId(suitePage);
+        final int testPageId = index.getId(testPage);
+
+        assertTrue(index.isPageType(suitePageId, PageType.SUITE));
+        assertFalse(index.isPageType(suitePageId, PageType.TEST));
+        assertTrue(index.isPageType(testPageId, PageType.TEST));
+        assertFalse(index.isPruned(suitePageId));
+        assertTrue(index.isPruned(testPageId));
+        assertEquals(Collections.emptyList(), index.getTags(suitePageId));
+        assertEquals(Arrays.asList("tagOne", "tagTwo"), index.getTags(testPageId));
+    }
+
+    @Test
+    public void testSuiteSetUpTearDownMatchesClosestInheritedPage() throws Exception {
+        final List<WikiPage> pages = addInheritanceTree(root);
+
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+
+        for (final WikiPage page : pages) {
+            final PageCrawler pageCrawler = page.getPageCrawler();
+            final int id = index.getId(page);
+            assertEquals(getFullPathName(pageCrawler.getClosestInheritedPage(PageData.SUITE_SETUP_NAME)),
+                    index.getFullPathName(index.getSuiteSetUp(id)));
+            assertEquals(getFullPathName(pageCrawler.getClosestInheritedPage(PageData.SUITE_TEARDOWN_NAME)),
+                    index.getFullPathName(index.getSuiteTearDown(id)));
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        final List<WikiPage> pages = addInheritanceTree(root);
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.write(out);
+        final WikiTreeIndex read = WikiTreeIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(index.size(), read.size());
+
+        for (final WikiPage page : pages) {
+            final int id = index.getId(page);
+            assertEquals(id, read.getId(page));
+            assertEquals(index.getFullPathName(id), read.getFullPathName(id));
+            assertEquals(index.getDepth(id), read.getDepth(id));
+            assertEquals(index.isPageType(id, PageType.SUITE), read.isPageType(id, PageType.SUITE));
+            assertEquals(index.getTags(id), read.getTags(id));
+            assertEquals(index.getSuiteSetUp(id), read.getSuiteSetUp(id));
+            assertEquals(index.getSuiteTearDown(id), read.getSuiteTearDown(id));
+        }
+    }
+
+    @Test
+    public void testReadInvalid() throws Exception {
+        // size
+        assertInvalid(0);
+        // the root with a parent
+        assertInvalid(1, "", 0, 1, 0, 0, 0L, 0, -1, -1);
+        // a child numbered before its parent
+        assertInvalid(2, "", -1, 1, 1, 0, 0L, 0, -1, -1, "PageOne", 1, 2, 0, 0, 0L, 0, -1, -1);
+        // children beyond the size
+        assertInvalid(2, "", -1, 1, 2, 0, 0L, 0, -1, -1, "PageOne", 0, 2, 0, 0, 0L, 0, -1, -1);
+        // a child which names another parent
+        assertInvalid(3, "", -1, 1, 2, 0, 0L, 0, -1, -1, "PageOne", 0, 3, 0, 0, 0L, 0, -1, -1,
+                "PageTwo", 1, 3, 0, 0, 0L, 0, -1, -1);
+        // a SuiteSetUp beyond the size
+        assertInvalid(1, "", -1, 1, 0, 0, 0L, 0, 5, -1);
+        // a size far beyond the records written
+        assertInvalid(Integer.MAX_VALUE, "", -1, 1, 0, 0, 0L, 0, -1, -1);
+        // a tag count far beyond the tags written
+        assertInvalid(1, "", -1, 1, 0, 0, 0L, Integer.MAX_VALUE, -1, -1);
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage testPage = addPage(suitePage, "TestPage", "", PageType.TEST);
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+        final WikiTreeIndex snapshot = index.snapshot();
+        final int testPageId = snapshot.getId(testPage);
+
+        // renumbers the pages of the index, but not of the snapshot
+        addPage(root, "OtherPage", "", PageType.STATIC);
+        index.refresh(root);
+
+        assertEquals(3, snapshot.size());
+        assertEquals(4, index.size());
+        assertEquals(getFullPathName(testPage), snapshot.getFullPathName(testPageId));
+        assertEquals(getFullPathName(suitePage), snapshot.getFullPathName(snapshot.getParent(testPageId)));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.STATIC);
+        final WikiTreeIndex index = new WikiTreeIndex(root);
+
+        final WikiPage testPage = addPage(suitePage, "TestPage", "", PageType.TEST);
+        final PageData data = suitePage.getData();
+        data.removeAttribute(PageType.STATIC.toString());
+        data.setAttribute(PageType.SUITE.toString());
+        suitePage.commit(data);
+
+        // pages held in memory are always re-read
+        assertEquals(3, index.refresh(root));
+
+        assertEquals(3, index.size());
+        assertTrue(index.isPageType(index.getId(suitePage), PageType.SUITE));
+        assertTrue(index.isPageType(index.getId(testPage), PageType.TEST));
+    }
+
+    @Test
+    public void testRefreshOnlyReadsChangedFiles() throws Exception {
+        final WikiPage fileRoot = new FileSystemPageFactory().makePage(
+                new File(temporaryFolder.getRoot(), "FitNesseRoot"), "FitNesseRoot", null, new SystemVariableSource());
+        final WikiPage suitePage = addPage(fileRoot, "SuitePage", "", PageType.SUITE);
+        final WikiPage testPage = addPage(suitePage, "TestPage", "", PageType.TEST);
+
+        final WikiTreeIndex index = new WikiTreeIndex(fileRoot);
+
+        assertEquals(3, index.size());
+        assertEquals(0, index.refresh(fileRoot));
+
+        // move the modification time forward rather than relying on the file system's timestamp resolution
+        final File wikiFile = new File(((FileBasedWikiPage) testPage).getFileSystemPath().getPath() + ".wiki");
+        assertTrue(wikiFile.setLastModified(wikiFile.lastModified() + 10000));
+
+        assertEquals(1, index.refresh(fileRoot));
+        assertTrue(index.isPageType(index.getId(testPage), PageType.TEST));
+
+        final WikiPage newTestPage = addPage(suitePage, "NewTestPage", "", PageType.TEST);
+        final File suiteDirectory = ((FileBasedWikiPage) suitePage).getFileSystemPath();
+        assertTrue(suiteDirectory.setLastModified(suiteDirectory.lastModified() + 20000));
+
+        // the changed suite page and the new page are read, the unchanged test page is not
+        assertEquals(2, index.refresh(fileRoot));
+        assertEquals(4, index.size());
+        assertTrue(index.isPageType(index.getId(newTestPage), PageType.TEST));
+        assertEquals(index.getId(suitePage), index.getParent(index.getId(testPage)));
+    }
+
+    /**
+     * Adds nested suites with SuiteSetUps and SuiteTearDowns declared at different levels.
+     * @return Pages added.
+     */
+    static List<WikiPage> addInheritanceTree(final WikiPage root) throws Exception {
+        final List<WikiPage> pages = new ArrayList<>();
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        pages.add(suitePage);
+        pages.add(addPage(suitePage, "SuiteSetUp", "", PageType.STATIC));
+
+        for (int i = 0; i < 3; ++i) {
+            final WikiPage childSuitePage = addPage(suitePage, "ChildSuitePage" + i, "", PageType.SUITE);
+            final WikiPage grandchildSuitePage = addPage(childSuitePage, "GrandchildSuitePage", "", PageType.SUITE);
+            pages.add(childSuitePage);
+            pages.add(grandchildSuitePage);
+
+            if (i == 1) {
+                pages.add(addPage(childSuitePage, "SuiteTearDown", "", PageType.STATIC));
+            }
+
+            for (int j = 0; j < 3; ++j) {
+                pages.add(addPage(childSuitePage, "TestPage" + j, "", PageType.TEST));
+                pages.add(addPage(grandchildSuitePage, "TestPage" + j, "", PageType.TEST));
+            }
+        }
+
+        final WikiPage testPageWithChild = addPage(suitePage, "TestPageWithChild", "", PageType.TEST);
+        pages.add(testPageWithChild);
+        pages.add(addPage(testPageWithChild, "SuiteSetUp", "", PageType.STATIC));
+
+        return pages;
+    }
+
+    /**
+     * Writes an index header and the values given, then expects reading it back to fail.
+     */
+    private static void assertInvalid(final int size, final Object... values) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (DataOutputStream data = new DataOutputStream(new GZIPOutputStream(out))) {
+            data.writeInt(0x46525754);
+            data.writeInt(1);
+            data.writeInt(size);
+
+            for (final Object value : values) {
+                if (value instanceof String) {
+                    data.writeUTF((String) value);
+                } else if (value instanceof Long) {
+                    data.writeLong((Long) value);
+                } else {
+                    data.writeInt((Integer) value);
+                }
+            }
+        }
+
+        try {
+            WikiTreeIndex.read(new ByteArrayInputStream(out.toByteArray()));
+            fail();
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid"));
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package paul6325106.fitnesse.teststorun.order;
+
+import fitnesse.FitNesseContext;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.util.WikiPageUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrderingStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WikiPage suiteOne;
+    private WikiPage suiteTwo;
+
+    @Before
+    public void setUp() throws Exception {
+        final WikiPage root = FitNesseUtil.makeTestContext().getRootPage();
+        suiteOne = WikiPageUtil.addPage(root, "SuiteOne", "", PageType.SUITE);
+        suiteTwo = WikiPageUtil.addPage(root, "SuiteTwo", "", PageType.SUITE);
+    }
+
+    @Test
+    public void testLongestFirst() throws Exception {
+        final WeightedWikiPage light = page(suiteOne, "LightPage", 10);
+        final WeightedWikiPage heavy = page(suiteOne, "HeavyPage", 30);
+        final WeightedWikiPage medium = page(suiteOne, "MediumPage", 20);
+
+        assertEquals(Arrays.asList(heavy, medium, light),
+                order(new LongestFirstOrderingStrategy(), light, heavy, medium));
+    }
+
+    @Test
+    public void testRelatedPagesAdjacent() throws Exception {
+        final WeightedWikiPage oneA = page(suiteOne, "PageA", 10);
+        final WeightedWikiPage twoA = page(suiteTwo, "PageA", 10);
+        final WeightedWikiPage oneB = page(suiteOne, "PageB", 10);
+        final WeightedWikiPage twoB = page(suiteTwo, "PageB", 50);
+
+        assertEquals(Arrays.asList(twoB, oneA, oneB, twoA),
+                order(new RelatedPagesOrderingStrategy(new LongestFirstOrderingStrategy()), oneA, twoA, oneB, twoB));
+        assertEquals(Arrays.asList(oneA, oneB, twoA, twoB),
+                order(new RelatedPagesOrderingStrategy(null), twoB, oneB, twoA, oneA));
+    }
+
+    @Test
+    public void testFailureRate() throws Exception {
+        final File historyDirectory = folder.newFolder("history");
+        final FitNesseContext context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(historyDirectory);
+
+        // 3 failures in 4 runs, 0 failures in 4 runs, and no history
+        writeHistory(historyDirectory, "SuiteOne.FlakyPage", 3, 1);
+        writeHistory(historyDirectory, "SuiteOne.StablePage", 0, 4);
+
+        final WeightedWikiPage flaky = page(suiteOne, "FlakyPage", 1000);
+        final WeightedWikiPage stable = page(suiteOne, "StablePage", 1000);
+        final WeightedWikiPage unknown = page(suiteOne, "UnknownPage", 1000);
+        // as likely to fail as the unknown page, but four times quicker to find out
+        final WeightedWikiPage quickUnknown = page(suiteOne, "QuickUnknownPage", 250);
+
+        final FailureRateOrderingStrategy strategy = new FailureRateOrderingStrategy(context);
+
+        assertEquals(4.0 / 6.0, strategy.getFailureProbability("SuiteOne.FlakyPage"), 0.0001);
+        assertEquals(1.0 / 6.0, strategy.getFailureProbability("SuiteOne.StablePage"), 0.0001);
+        assertEquals(Arrays.asList(quickUnknown, flaky, unknown, stable),
+                order(strategy, stable, unknown, flaky, quickUnknown));
+    }
+
+    @Test
+    public void testFailureRateHistoryAfterConstruction() throws Exception {
+        final File historyDirectory = folder.newFolder("history");
+        final FitNesseContext context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(historyDirectory);
+
+        final FailureRateOrderingStrategy strategy = new FailureRateOrderingStrategy(context);
+        assertEquals(0.5, strategy.getFailureProbability("SuiteOne.FlakyPage"), 0.0001);
+
+        writeHistory(historyDirectory, "SuiteOne.FlakyPage", 3, 1);
+        assertEquals(4.0 / 6.0, strategy.getFailureProbability("SuiteOne.FlakyPage"), 0.0001);
+    }
+
+    private static List<WeightedWikiPage> order(final OrderingStrategy strategy, final WeightedWikiPage... pages)
+            throws Exception {
+
+        final List<WeightedWikiPage> ordered = new ArrayList<>(Arrays.asList(pages));
+        ordered.sort(strategy.getComparator(ordered));
+        return ordered;
+    }
+
+    private static WeightedWikiPage page(final WikiPage parent, final String name, final long weight) {
+        return new WeightedWikiPage(WikiPageUtil.addPage(parent, name, "", PageType.TEST), weight);
+    }
+
+    private static void writeHistory(final File historyDirectory, final String pathName, final int failures,
+            final int passes) throws Exception {
+
+        final File pageDirectory = new File(historyDirectory, pathName);
+        pageDirectory.mkdirs();
+
+        for (int i = 0; i < failures + passes; ++i) {
+            final String counts = i < failures ? "_0_1_0_0" : "_1_0_0_0";
+            new File(pageDirectory, String.format("201611060000%02d", i) + counts + ".xml").createNewFile();
+        }
+    }
+
+}
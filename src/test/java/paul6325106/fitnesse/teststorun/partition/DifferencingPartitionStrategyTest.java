@@ -0,0 +1,88 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.group;
+
+public class DifferencingPartitionStrategyTest {
+
+    @Test
+    public void testSmallGroupsUnchanged() {
+        final WeightedWikiPageGroup light = group(1, 2);
+        final WeightedWikiPageGroup heavy = group(5, 5);
+
+        final List<WeightedWikiPageGroup> groups = new ArrayList<>(Arrays.asList(light, heavy));
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(new DifferencingPartitionStrategy(100).partition(groups, 4));
+
+        assertEquals(Arrays.asList(heavy, light), partitioned);
+    }
+
+    @Test
+    public void testDifferencing() {
+        // LPT gives 17, i.e. {8, 5, 4} and {7, 6}
+        final Collection<WeightedWikiPageGroup> partitioned = new DifferencingPartitionStrategy(10)
+                .partition(new ArrayList<>(Arrays.asList(group(8, 7, 6, 5, 4))), 2);
+
+        assertEquals(16L, getMaxPagesWeight(partitioned));
+        assertAllPagesKept(partitioned, 5);
+    }
+
+    @Test
+    public void testSearch() {
+        final Collection<WeightedWikiPageGroup> partitioned =
+                new DifferencingPartitionStrategy(10, Duration.ofSeconds(1))
+                        .partition(new ArrayList<>(Arrays.asList(group(8, 7, 6, 5, 4))), 2);
+
+        assertEquals(15L, getMaxPagesWeight(partitioned));
+        assertAllPagesKept(partitioned, 5);
+    }
+
+    @Test
+    public void testNoWorseThanLpt() {
+        final Random random = new Random(6325106L);
+
+        for (int run = 0; run < 20; ++run) {
+            final long[] weights = new long[1 + random.nextInt(500)];
+            for (int i = 0; i < weights.length; ++i) {
+                // a few dominant pages amongst many light ones
+                weights[i] = random.nextInt(20) == 0 ? 10000 + random.nextInt(50000) : 1 + random.nextInt(2000);
+            }
+
+            final int count = 2 + random.nextInt(15);
+
+            final Collection<WeightedWikiPageGroup> lpt =
+                    new LptPartitionStrategy(0).partition(new ArrayList<>(Arrays.asList(group(weights))), count);
+            // bounded by search steps rather than time, so the result does not depend on the speed of the machine
+            final Collection<WeightedWikiPageGroup> differencing = new DifferencingPartitionStrategy(0,
+                    Duration.ofMinutes(10), 100000).partition(new ArrayList<>(Arrays.asList(group(weights))), count);
+
+            assertAllPagesKept(differencing, weights.length);
+            assertEquals(lpt.size(), differencing.size());
+            assertTrue(getMaxPagesWeight(differencing) <= getMaxPagesWeight(lpt));
+        }
+    }
+
+    private static long getMaxPagesWeight(final Collection<WeightedWikiPageGroup> groups) {
+        return groups.stream().mapToLong(WeightedWikiPageGroup::getPagesWeight).max().orElse(0L);
+    }
+
+    private static void assertAllPagesKept(final Collection<WeightedWikiPageGroup> groups, final int count) {
+        final Set<Object> pages = new HashSet<>();
+        groups.forEach(group -> pages.addAll(group.getWikiPages()));
+        assertEquals(count, pages.size());
+    }
+
+}
@@ -0,0 +1,103 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.group;
+
+public class ExecutorAssignerTest {
+
+    private final ExecutorSpec fast = new ExecutorSpec("fast", 3.0);
+    private final ExecutorSpec slow = new ExecutorSpec("slow", 1.0);
+
+    @Test
+    public void testCount() {
+        assertEquals(4, ExecutorAssigner.getCount(Arrays.asList(fast, slow)));
+        assertEquals(3, ExecutorAssigner.getCount(Arrays.asList(slow, new ExecutorSpec("b", 1.0),
+                new ExecutorSpec("c", 1.0))));
+        assertEquals(2, ExecutorAssigner.getCount(Arrays.asList(new ExecutorSpec("a", 1.2), slow)));
+    }
+
+    @Test
+    public void testPartitionForExecutors() {
+        final WeightedWikiPageGroup group = group(10, 10, 10, 10, 10, 10, 10, 10);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned = new LptPartitionStrategy(0)
+                .partition(new ArrayList<>(Arrays.asList(group)), Arrays.asList(slow, fast));
+
+        assertEquals(Arrays.asList(slow, fast), new ArrayList<>(partitioned.keySet()));
+        assertEquals(1, partitioned.get(slow).size());
+        assertEquals(2, partitioned.get(slow).get(0).getWikiPages().size());
+
+        // the fast executor's three pieces share a SuiteSetUp/SuiteTearDown combination, so are merged into one
+        assertEquals(1, partitioned.get(fast).size());
+        assertEquals(6, partitioned.get(fast).get(0).getWikiPages().size());
+        assertEquals(62L, partitioned.get(fast).get(0).getTotalWeight());
+    }
+
+    @Test
+    public void testMergeOnSkewedSpeeds() {
+        final List<WeightedWikiPageGroup> groups = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            groups.add(withPair(group(10, 10, 10, 10, 10, 10, 10, 10, 10, 10), "Suite" + i));
+        }
+
+        final ExecutorSpec slowest = new ExecutorSpec("slowest", 0.1);
+        final ExecutorSpec fastest = new ExecutorSpec("fastest", 32.0);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned =
+                new LptPartitionStrategy(0).partition(groups, Arrays.asList(slowest, fastest));
+
+        // many pieces per group, but never more than one per combination on an executor
+        final int pages = partitioned.values().stream().flatMap(List::stream)
+                .mapToInt(group -> group.getWikiPages().size()).sum();
+        assertEquals(40, pages);
+
+        for (final List<WeightedWikiPageGroup> executorGroups : partitioned.values()) {
+            assertEquals(executorGroups.size(), executorGroups.stream()
+                    .map(WeightedWikiPageGroup::getSuiteSetUpTearDownPair).distinct().count());
+        }
+
+        assertEquals(4, partitioned.get(fastest).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateExecutors() {
+        ExecutorAssigner.assign(Arrays.asList(group(5)), Arrays.asList(slow, fast, slow));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateExecutorNames() {
+        new LptPartitionStrategy(0).partition(new ArrayList<>(Arrays.asList(group(5))),
+                Arrays.asList(slow, new ExecutorSpec("slow", 2.0)));
+    }
+
+    @Test
+    public void testEveryExecutorPresent() {
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> assigned =
+                ExecutorAssigner.assign(Arrays.asList(group(5)), Arrays.asList(fast, slow));
+
+        assertEquals(1, assigned.get(fast).size());
+        assertEquals(0, assigned.get(slow).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSpeed() {
+        new ExecutorSpec("stopped", 0.0);
+    }
+
+    private static WeightedWikiPageGroup withPair(final WeightedWikiPageGroup group, final String suiteName) {
+        return new WeightedWikiPageGroup(
+                new SuiteSetUpTearDownPair(suiteName + ".SuiteSetUp", suiteName + ".SuiteTearDown"),
+                group.getWikiPages(), group.getSetUpWeight(), group.getTearDownWeight(), group.getPagesWeight());
+    }
+
+}
@@ -0,0 +1,108 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import fitnesse.wiki.WikiPage;
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+public class LptPartitionStrategyTest {
+
+    @Test
+    public void testSmallGroupsUnchanged() {
+        final WeightedWikiPageGroup light = group(1, 2);
+        final WeightedWikiPageGroup heavy = group(5, 5);
+
+        final List<WeightedWikiPageGroup> groups = new ArrayList<>(Arrays.asList(light, heavy));
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(new LptPartitionStrategy(100).partition(groups, 4));
+
+        assertEquals(Arrays.asList(heavy, light), partitioned);
+    }
+
+    @Test
+    public void testSplitLargeGroup() {
+        final WeightedWikiPageGroup group = group(7, 5, 4, 3, 3, 2);
+
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(new LptPartitionStrategy(10).partition(new ArrayList<>(Arrays.asList(group)), 3));
+
+        assertEquals(3, partitioned.size());
+        assertEquals(Arrays.asList(7L, 2L), weights(partitioned.get(0)));
+        assertEquals(Arrays.asList(5L, 3L), weights(partitioned.get(1)));
+        assertEquals(Arrays.asList(4L, 3L), weights(partitioned.get(2)));
+        assertEquals(9L, partitioned.get(0).getPagesWeight());
+        assertEquals(8L, partitioned.get(1).getPagesWeight());
+        assertEquals(7L, partitioned.get(2).getPagesWeight());
+    }
+
+    @Test
+    public void testFewerPagesThanCount() {
+        final WeightedWikiPageGroup group = group(50, 60);
+
+        final Collection<WeightedWikiPageGroup> partitioned =
+                new LptPartitionStrategy(10).partition(new ArrayList<>(Arrays.asList(group)), 8);
+
+        assertEquals(2, partitioned.size());
+    }
+
+    @Test
+    public void testSameAsNaivePartitionStrategy() {
+        final Random random = new Random(6325106L);
+
+        for (int run = 0; run < 20; ++run) {
+            final List<WeightedWikiPageGroup> groups = new ArrayList<>();
+
+            for (int i = 0; i < 10; ++i) {
+                final long[] weights = new long[1 + random.nextInt(200)];
+                for (int j = 0; j < weights.length; ++j) {
+                    weights[j] = random.nextInt(10) == 0 ? 1 : random.nextInt(5000);
+                }
+                groups.add(group(weights));
+            }
+
+            final int count = 1 + random.nextInt(16);
+
+            final List<WeightedWikiPageGroup> naive =
+                    new ArrayList<>(new NaivePartitionStrategy(20000).partition(new ArrayList<>(groups), count));
+            final List<WeightedWikiPageGroup> lpt =
+                    new ArrayList<>(new LptPartitionStrategy(20000).partition(new ArrayList<>(groups), count));
+
+            assertEquals(naive.size(), lpt.size());
+
+            for (int i = 0; i < naive.size(); ++i) {
+                assertEquals(naive.get(i).getSuiteSetUpTearDownPair(), lpt.get(i).getSuiteSetUpTearDownPair());
+                assertEquals(naive.get(i).getWikiPages(), lpt.get(i).getWikiPages());
+                assertEquals(naive.get(i).getTotalWeight(), lpt.get(i).getTotalWeight());
+            }
+        }
+    }
+
+    static WeightedWikiPageGroup group(final long... weights) {
+        final List<WeightedWikiPage> pages = new ArrayList<>(weights.length);
+        long total = 0;
+
+        for (final long weight : weights) {
+            pages.add(new WeightedWikiPage(mock(WikiPage.class), weight));
+            total += weight;
+        }
+
+        return new WeightedWikiPageGroup(new SuiteSetUpTearDownPair(null, null), pages, 1, 1, total);
+    }
+
+    static List<Long> weights(final WeightedWikiPageGroup group) {
+        final List<Long> weights = new ArrayList<>();
+        group.getWikiPages().forEach(page -> weights.add(page.getWeight()));
+        return weights;
+    }
+
+}
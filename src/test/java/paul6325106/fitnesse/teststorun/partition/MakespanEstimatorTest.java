@@ -0,0 +1,22 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.group;
+
+public class MakespanEstimatorTest {
+
+    @Test
+    public void testMakespan() {
+        // totals include 1 each for SuiteSetUp and SuiteTearDown: 12, 9, 7, 5
+        assertEquals(33L, MakespanEstimator.getMakespan(Arrays.asList(group(10), group(7), group(5), group(3)), 1));
+        assertEquals(17L, MakespanEstimator.getMakespan(Arrays.asList(group(10), group(7), group(5), group(3)), 2));
+        assertEquals(12L, MakespanEstimator.getMakespan(Arrays.asList(group(10), group(7), group(5), group(3)), 8));
+        assertEquals(0L, MakespanEstimator.getMakespan(Collections.emptyList(), 2));
+    }
+
+}
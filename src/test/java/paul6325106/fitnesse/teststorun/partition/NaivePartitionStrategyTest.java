@@ -1,7 +1,31 @@
 package paul6325106.fitnesse.teststorun.partition;
 
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.group;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.weights;
+
 public class NaivePartitionStrategyTest {
 
-    // TODO
+    @Test
+    public void testSplitLargeGroup() {
+        final WeightedWikiPageGroup small = group(1, 1);
+        final WeightedWikiPageGroup large = group(7, 5, 4, 3, 3, 2);
+
+        final List<WeightedWikiPageGroup> partitioned = new ArrayList<>(
+                new NaivePartitionStrategy(10).partition(new ArrayList<>(Arrays.asList(small, large)), 3));
+
+        assertEquals(4, partitioned.size());
+        assertEquals(small, partitioned.get(0));
+        assertEquals(Arrays.asList(7L, 2L), weights(partitioned.get(1)));
+        assertEquals(Arrays.asList(5L, 3L), weights(partitioned.get(2)));
+        assertEquals(Arrays.asList(4L, 3L), weights(partitioned.get(3)));
+    }
 
 }
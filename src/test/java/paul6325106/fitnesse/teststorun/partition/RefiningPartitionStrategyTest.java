@@ -0,0 +1,138 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.group;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.weights;
+
+public class RefiningPartitionStrategyTest {
+
+    private static final double DELTA = 0.001;
+
+    @Test
+    public void testSwap() {
+        final WeightedWikiPageGroup first = group(40, 10);
+        final WeightedWikiPageGroup second = group(19, 19, 2);
+
+        final RefiningPartitionStrategy strategy = refining(first, second);
+        final List<WeightedWikiPageGroup> refined =
+                new ArrayList<>(strategy.partition(new ArrayList<>(), 2));
+
+        // setup and teardown weigh 1 each
+        assertEquals(52.0, strategy.getInitialMakespan(), DELTA);
+        assertEquals(50.0, strategy.getRefinedMakespan(), DELTA);
+        assertEquals(Arrays.asList(40L, 2L), weights(refined.get(0)));
+        assertEquals(Arrays.asList(19L, 19L, 10L), weights(refined.get(1)));
+        assertEquals(42L, refined.get(0).getPagesWeight());
+    }
+
+    @Test
+    public void testIncompatibleGroups() {
+        final WeightedWikiPageGroup first = group(40, 10);
+        final WeightedWikiPageGroup second = withPair(group(5), new SuiteSetUpTearDownPair("SuiteSetUp", null));
+
+        final RefiningPartitionStrategy strategy = refining(first, second);
+        final List<WeightedWikiPageGroup> refined = new ArrayList<>(strategy.partition(new ArrayList<>(), 2));
+
+        assertEquals(Arrays.asList(40L, 10L), weights(refined.get(0)));
+        assertEquals(Collections.singletonList(5L), weights(refined.get(1)));
+        assertEquals(strategy.getInitialMakespan(), strategy.getRefinedMakespan(), DELTA);
+    }
+
+    @Test
+    public void testIterationLimit() {
+        final RefiningPartitionStrategy strategy =
+                new RefiningPartitionStrategy(fixed(group(40, 10), group(19, 19, 2)), 0, Duration.ofSeconds(1));
+
+        final List<WeightedWikiPageGroup> refined = new ArrayList<>(strategy.partition(new ArrayList<>(), 2));
+
+        assertEquals(Arrays.asList(40L, 10L), weights(refined.get(0)));
+        assertEquals(52.0, strategy.getRefinedMakespan(), DELTA);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        final RefiningPartitionStrategy strategy =
+                new RefiningPartitionStrategy(fixed(group(40, 10), group(19, 19, 2)), 100, Duration.ZERO);
+
+        final List<WeightedWikiPageGroup> refined = new ArrayList<>(strategy.partition(new ArrayList<>(), 2));
+
+        assertEquals(Arrays.asList(40L, 10L), weights(refined.get(0)));
+        assertEquals(52.0, strategy.getRefinedMakespan(), DELTA);
+    }
+
+    @Test
+    public void testEmpty() {
+        final RefiningPartitionStrategy strategy =
+                new RefiningPartitionStrategy(new LptPartitionStrategy(1L), 100, Duration.ofSeconds(1));
+
+        assertTrue(strategy.partition(new ArrayList<>(), 4).isEmpty());
+        assertEquals(0.0, strategy.getRefinedMakespan(), DELTA);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> refined =
+                strategy.partition(new ArrayList<>(), Collections.singletonList(new ExecutorSpec("one", 1.0)));
+        assertTrue(refined.values().stream().allMatch(List::isEmpty));
+    }
+
+    @Test
+    public void testExecutors() {
+        final ExecutorSpec slow = new ExecutorSpec("slow", 1.0);
+        final ExecutorSpec fast = new ExecutorSpec("fast", 2.0);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> assigned = new LinkedHashMap<>();
+        assigned.put(slow, Collections.singletonList(group(30, 10)));
+        assigned.put(fast, Collections.singletonList(group(10)));
+
+        final RefiningPartitionStrategy strategy = new RefiningPartitionStrategy(new PartitionStrategy() {
+            @Override
+            public Collection<WeightedWikiPageGroup> partition(final List<WeightedWikiPageGroup> groups,
+                    final int count) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Map<ExecutorSpec, List<WeightedWikiPageGroup>> partition(final List<WeightedWikiPageGroup> groups,
+                    final List<ExecutorSpec> executors) {
+                return assigned;
+            }
+        }, 100, Duration.ofSeconds(1));
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> refined =
+                strategy.partition(new ArrayList<>(), Arrays.asList(slow, fast));
+
+        assertEquals(42.0, strategy.getInitialMakespan(), DELTA);
+        assertEquals(Collections.singletonList(10L), weights(refined.get(slow).get(0)));
+        assertEquals(Arrays.asList(10L, 30L), weights(refined.get(fast).get(0)));
+        assertEquals(21.0, strategy.getRefinedMakespan(), DELTA);
+    }
+
+    private static RefiningPartitionStrategy refining(final WeightedWikiPageGroup... groups) {
+        return new RefiningPartitionStrategy(fixed(groups), 100, Duration.ofSeconds(1));
+    }
+
+    private static PartitionStrategy fixed(final WeightedWikiPageGroup... groups) {
+        return (ignored, count) -> Arrays.asList(groups);
+    }
+
+    private static WeightedWikiPageGroup withPair(final WeightedWikiPageGroup group,
+            final SuiteSetUpTearDownPair pair) {
+
+        return new WeightedWikiPageGroup(pair, group.getWikiPages(), group.getSetUpWeight(),
+                group.getTearDownWeight(), group.getPagesWeight());
+    }
+
+}
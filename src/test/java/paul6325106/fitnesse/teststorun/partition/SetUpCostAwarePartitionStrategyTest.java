@@ -0,0 +1,86 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static paul6325106.fitnesse.teststorun.partition.LptPartitionStrategyTest.group;
+
+public class SetUpCostAwarePartitionStrategyTest {
+
+    private final SetUpCostAwarePartitionStrategy strategy = new SetUpCostAwarePartitionStrategy();
+
+    @Test
+    public void testSplitCheapSetUp() {
+        // set up and tear down weigh 1 each, so splitting 8 equal pages across 4 executors pays off
+        final WeightedWikiPageGroup group = group(10, 10, 10, 10, 10, 10, 10, 10);
+
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(strategy.partition(new ArrayList<>(Arrays.asList(group)), 4));
+
+        assertEquals(4, partitioned.size());
+        partitioned.forEach(piece -> assertEquals(20L, piece.getPagesWeight()));
+    }
+
+    @Test
+    public void testNoSplitExpensiveSetUp() {
+        // every executor already has a group, so another copy of the set up can only add to the makespan
+        final WeightedWikiPageGroup first = withSetUp(group(10, 10, 10, 10), 100);
+        final WeightedWikiPageGroup second = withSetUp(group(10, 10, 10, 10), 100);
+
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(strategy.partition(new ArrayList<>(Arrays.asList(first, second)), 2));
+
+        assertEquals(Arrays.asList(first, second), partitioned);
+    }
+
+    @Test
+    public void testSplitOnlyWherePaidBack() {
+        // splitting the first group in two saves 100 for 20 of set up, the second group would cost more than it saves
+        final WeightedWikiPageGroup cheap = withSetUp(group(100, 100), 10);
+        final WeightedWikiPageGroup expensive = withSetUp(group(5, 5), 50);
+
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(strategy.partition(new ArrayList<>(Arrays.asList(expensive, cheap)), 3));
+
+        assertEquals(3, partitioned.size());
+        assertEquals(expensive, partitioned.get(0));
+        assertEquals(100L, partitioned.get(1).getPagesWeight());
+        assertEquals(100L, partitioned.get(2).getPagesWeight());
+    }
+
+    @Test
+    public void testSplitTiedGroups() {
+        // splitting either group alone leaves the other at the makespan of 82, splitting both gives 42
+        final WeightedWikiPageGroup first = withSetUp(group(10, 10, 10, 10, 10, 10, 10, 10), 1);
+        final WeightedWikiPageGroup second = withSetUp(group(10, 10, 10, 10, 10, 10, 10, 10), 1);
+
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(strategy.partition(new ArrayList<>(Arrays.asList(first, second)), 4));
+
+        assertEquals(4, partitioned.size());
+        partitioned.forEach(piece -> assertEquals(42L, piece.getTotalWeight()));
+        assertEquals(42L, MakespanEstimator.getMakespan(partitioned, 4));
+    }
+
+    @Test
+    public void testSingleExecutor() {
+        final WeightedWikiPageGroup group = group(10, 10, 10, 10);
+
+        final List<WeightedWikiPageGroup> partitioned =
+                new ArrayList<>(strategy.partition(new ArrayList<>(Arrays.asList(group)), 1));
+
+        assertEquals(Arrays.asList(group), partitioned);
+    }
+
+    private static WeightedWikiPageGroup withSetUp(final WeightedWikiPageGroup group, final long setUpWeight) {
+        return new WeightedWikiPageGroup(new SuiteSetUpTearDownPair("SuiteSetUp", "SuiteTearDown"),
+                group.getWikiPages(), setUpWeight, setUpWeight, group.getPagesWeight());
+    }
+
+}
@@ -0,0 +1,181 @@
+package paul6325106.fitnesse.teststorun.partition;
+
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+import org.junit.Before;
+import org.junit.Test;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPage;
+import paul6325106.fitnesse.teststorun.domain.WeightedWikiPageGroup;
+import paul6325106.fitnesse.teststorun.plan.ExecutionPlanReader;
+import paul6325106.fitnesse.teststorun.plan.ExecutionPlanWriter;
+import paul6325106.fitnesse.util.WikiPageUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StablePartitionStrategyTest {
+
+    private final ExecutorSpec one = new ExecutorSpec("one", 1.0);
+    private final ExecutorSpec two = new ExecutorSpec("two", 1.0);
+    private final SuiteSetUpTearDownPair pair = new SuiteSetUpTearDownPair("SuiteSetUp", "SuiteTearDown");
+
+    private final List<WikiPage> pages = new ArrayList<>();
+    private WikiPage root;
+
+    @Before
+    public void setUp() throws Exception {
+        root = FitNesseUtil.makeTestContext().getRootPage();
+
+        for (int i = 0; i < 20; ++i) {
+            pages.add(WikiPageUtil.addPage(root, "PageNumber" + i, "", PageType.TEST));
+        }
+    }
+
+    @Test
+    public void testKeepsPreviousExecutor() {
+        // previously even pages on one, odd pages on two
+        final List<TestsToRunContext> previousPlan = Arrays.asList(
+                new TestsToRunContext(null, pages(0), one),
+                new TestsToRunContext(null, pages(1), two));
+
+        // small weight changes, which LPT would reshuffle
+        final long[] weights = new long[pages.size()];
+        for (int i = 0; i < weights.length; ++i) {
+            weights[i] = 100 + (i * 7) % 13;
+        }
+
+        final StablePartitionStrategy strategy = new StablePartitionStrategy(previousPlan, 0.05);
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned =
+                strategy.partition(groups(weights), Arrays.asList(one, two));
+
+        assertEquals(new HashSet<>(pages(0)), new HashSet<>(getPages(partitioned.get(one))));
+        assertEquals(new HashSet<>(pages(1)), new HashSet<>(getPages(partitioned.get(two))));
+    }
+
+    @Test
+    public void testRebalancesWhenWorthwhile() {
+        // previously everything on one, now two is available too
+        final List<TestsToRunContext> previousPlan = Collections.singletonList(
+                new TestsToRunContext(null, new ArrayList<>(pages), one));
+
+        final long[] weights = new long[pages.size()];
+        Arrays.fill(weights, 100L);
+
+        final StablePartitionStrategy strategy = new StablePartitionStrategy(previousPlan, 0.05);
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned =
+                strategy.partition(groups(weights), Arrays.asList(one, two));
+
+        assertEquals(10, getPages(partitioned.get(one)).size());
+        assertEquals(10, getPages(partitioned.get(two)).size());
+    }
+
+    @Test
+    public void testNewPagesStable() {
+        final long[] weights = new long[pages.size()];
+        Arrays.fill(weights, 100L);
+
+        // no previous plan and no rebalancing, so placement is by hash alone
+        final StablePartitionStrategy strategy = new StablePartitionStrategy(Collections.emptyList(), 1.0);
+        final ExecutorSpec three = new ExecutorSpec("three", 1.0);
+
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> first =
+                strategy.partition(groups(weights), Arrays.asList(one, two));
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> second =
+                strategy.partition(groups(weights), Arrays.asList(one, two, three));
+
+        // adding an executor only takes pages from the others
+        assertTrue(new HashSet<>(getPages(first.get(one))).containsAll(getPages(second.get(one))));
+        assertTrue(new HashSet<>(getPages(first.get(two))).containsAll(getPages(second.get(two))));
+        assertEquals(pages.size(), getPages(second.get(one)).size() + getPages(second.get(two)).size() +
+                getPages(second.get(three)).size());
+    }
+
+    @Test
+    public void testCount() {
+        final long[] weights = new long[pages.size()];
+        Arrays.fill(weights, 100L);
+
+        final Collection<WeightedWikiPageGroup> partitioned =
+                new StablePartitionStrategy(Collections.emptyList(), 0.0).partition(groups(weights), 4);
+
+        assertEquals(4, partitioned.size());
+        partitioned.forEach(group -> assertEquals(500L, group.getPagesWeight()));
+    }
+
+    @Test
+    public void testShardPlanRoundTrip() throws Exception {
+        final long[] weights = new long[pages.size()];
+        Arrays.fill(weights, 100L);
+
+        // rebalanced, so the plan is not what hashing alone would give
+        final StablePartitionStrategy first = new StablePartitionStrategy(Collections.emptyList(), 0.0);
+        final Map<ExecutorSpec, List<WeightedWikiPageGroup>> partitioned =
+                first.partition(groups(weights), StablePartitionStrategy.getShards(4));
+
+        // as TestsToRunContextGenerator#generate(Collection, List) builds them, tagged with their executor
+        final List<TestsToRunContext> plan = new ArrayList<>();
+        partitioned.forEach((executor, executorGroups) -> executorGroups.forEach(group ->
+                plan.add(new TestsToRunContext(root, getPages(Collections.singletonList(group)), executor))));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final ExecutionPlanWriter writer = new ExecutionPlanWriter(out)) {
+            writer.write(plan);
+        }
+
+        final List<TestsToRunContext> previousPlan;
+        try (final ExecutionPlanReader reader =
+                new ExecutionPlanReader(new ByteArrayInputStream(out.toByteArray()), root)) {
+            previousPlan = reader.readAll();
+        }
+
+        // no rebalancing, through the count based API
+        final List<WeightedWikiPageGroup> second = new ArrayList<>(
+                new StablePartitionStrategy(previousPlan, 1.0).partition(groups(weights), 4));
+
+        assertEquals(4, second.size());
+        int shard = 0;
+        for (final List<WeightedWikiPageGroup> executorGroups : partitioned.values()) {
+            assertEquals(new HashSet<>(getPages(executorGroups)),
+                    new HashSet<>(getPages(Collections.singletonList(second.get(shard++)))));
+        }
+    }
+
+    private List<WikiPage> pages(final int parity) {
+        final List<WikiPage> result = new ArrayList<>();
+        for (int i = parity; i < pages.size(); i += 2) {
+            result.add(pages.get(i));
+        }
+        return result;
+    }
+
+    private List<WeightedWikiPageGroup> groups(final long[] weights) {
+        final List<WeightedWikiPage> weighted = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; i < weights.length; ++i) {
+            weighted.add(new WeightedWikiPage(pages.get(i), weights[i]));
+            total += weights[i];
+        }
+        return new ArrayList<>(Collections.singletonList(new WeightedWikiPageGroup(pair, weighted, 10, 10, total)));
+    }
+
+    private static List<WikiPage> getPages(final List<WeightedWikiPageGroup> groups) {
+        final List<WikiPage> result = new ArrayList<>();
+        groups.forEach(group -> group.getWikiPages().forEach(page -> result.add(page.getWikiPage())));
+        return result;
+    }
+
+}
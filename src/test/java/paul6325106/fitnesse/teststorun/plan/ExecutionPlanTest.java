@@ -0,0 +1,156 @@
+package paul6325106.fitnesse.teststorun.plan;
+
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.teststorun.domain.ExecutorSpec;
+import paul6325106.fitnesse.teststorun.domain.SuiteSetUpTearDownPair;
+import paul6325106.fitnesse.teststorun.domain.TestsToRunContext;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+import paul6325106.fitnesse.util.WikiPageUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ExecutionPlanTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WikiPage root;
+    private WikiPage suitePage;
+    private WikiPage pageOne;
+    private WikiPage pageTwo;
+
+    @Before
+    public void setUp() throws Exception {
+        root = FitNesseUtil.makeTestContext().getRootPage();
+        suitePage = WikiPageUtil.addPage(root, "SuitePage", "", PageType.SUITE);
+        pageOne = WikiPageUtil.addPage(suitePage, "PageOne", "", PageType.TEST);
+        pageTwo = WikiPageUtil.addPage(suitePage, "PageTwo", "", PageType.TEST);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final SuiteSetUpTearDownPair pair = new SuiteSetUpTearDownPair("SuitePage.SuiteSetUp", null);
+        final ExecutorSpec executor = new ExecutorSpec("agent-1", 4.0);
+
+        final TestsToRunContext first =
+                new TestsToRunContext(suitePage, Arrays.asList(pageTwo, pageOne), executor, pair, 1234L);
+        final TestsToRunContext second = new TestsToRunContext(pageOne, Arrays.asList(pageOne));
+
+        final File file = folder.newFile();
+        try (final ExecutionPlanWriter writer = new ExecutionPlanWriter(file)) {
+            writer.write(Arrays.asList(first, second));
+        }
+
+        // a separate wiki with the same pages, as on another node
+        final WikiPage otherRoot = FitNesseUtil.makeTestContext().getRootPage();
+        final WikiPage otherSuitePage = WikiPageUtil.addPage(otherRoot, "SuitePage", "", PageType.SUITE);
+        final WikiPage otherPageOne = WikiPageUtil.addPage(otherSuitePage, "PageOne", "", PageType.TEST);
+        final WikiPage otherPageTwo = WikiPageUtil.addPage(otherSuitePage, "PageTwo", "", PageType.TEST);
+
+        try (final ExecutionPlanReader reader = new ExecutionPlanReader(file, otherRoot)) {
+            final TestsToRunContext readFirst = reader.read();
+            assertEquals(otherSuitePage, readFirst.getRequestedPage());
+            assertEquals(Arrays.asList(otherPageTwo, otherPageOne), readFirst.getTestsToRun());
+            assertEquals(pair, readFirst.getSuiteSetUpTearDownPair());
+            assertEquals(1234L, readFirst.getWeight());
+            assertEquals(executor, readFirst.getExecutor());
+
+            final TestsToRunContext readSecond = reader.read();
+            assertEquals(otherPageOne, readSecond.getRequestedPage());
+            assertEquals(Arrays.asList(otherPageOne), readSecond.getTestsToRun());
+            assertNull(readSecond.getSuiteSetUpTearDownPair());
+            assertNull(readSecond.getExecutor());
+
+            assertNull(reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testMissingPage() throws Exception {
+        final File file = folder.newFile();
+        try (final ExecutionPlanWriter writer = new ExecutionPlanWriter(file)) {
+            writer.write(new TestsToRunContext(suitePage, Arrays.asList(pageOne)));
+        }
+
+        final WikiPage otherRoot = FitNesseUtil.makeTestContext().getRootPage();
+        WikiPageUtil.addPage(otherRoot, "SuitePage", "", PageType.SUITE);
+
+        try (final ExecutionPlanReader reader = new ExecutionPlanReader(file, otherRoot)) {
+            reader.read();
+            fail();
+        } catch (final TestsToRunContextGeneratorException e) {
+            assertEquals(TestsToRunContextGeneratorReason.UNABLE_TO_FIND_WIKI_PAGE, e.getReason());
+        }
+    }
+
+    @Test
+    public void testTruncatedPlan() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ExecutionPlanWriter writer = new ExecutionPlanWriter(out);
+        writer.write(new TestsToRunContext(suitePage, Arrays.asList(pageOne)));
+        writer.close();
+
+        final byte[] bytes = out.toByteArray();
+        final byte[] truncated = Arrays.copyOf(bytes, bytes.length - 12);
+
+        try (final ExecutionPlanReader reader = new ExecutionPlanReader(new ByteArrayInputStream(truncated), root)) {
+            final List<TestsToRunContext> contexts = reader.readAll();
+            fail("Read " + contexts);
+        } catch (final IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFailedWrite() throws Exception {
+        // a page without a crawler fails part way through writing its shard
+        final WikiPage brokenPage = mock(WikiPage.class);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ExecutionPlanWriter writer = new ExecutionPlanWriter(out);
+        writer.write(new TestsToRunContext(suitePage, Arrays.asList(pageOne)));
+
+        try {
+            writer.write(new TestsToRunContext(suitePage, Arrays.asList(pageTwo, brokenPage)));
+            fail();
+        } catch (final RuntimeException e) {
+            // expected
+        }
+
+        try {
+            writer.write(new TestsToRunContext(suitePage, Arrays.asList(pageTwo)));
+            fail();
+        } catch (final IOException e) {
+            // expected
+        }
+
+        writer.close();
+
+        try (final ExecutionPlanReader reader =
+                new ExecutionPlanReader(new ByteArrayInputStream(out.toByteArray()), root)) {
+            final List<TestsToRunContext> contexts = reader.readAll();
+            fail("Read " + contexts);
+        } catch (final IOException e) {
+            // expected
+        }
+    }
+
+}
@@ -1,7 +1,73 @@
 package paul6325106.fitnesse.teststorun.weight;
 
+import fitnesse.FitNesseContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 public class AverageRuntimeWeightStrategyTest {
 
-    // TODO
+    private static final long DAY = Duration.ofDays(1).toMillis();
+    private static final long NOW = 100 * DAY;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FitNesseContext context;
+    private Clock clock;
+
+    @Before
+    public void setUp() throws Exception {
+        final File testHistoryDirectory = folder.newFolder("history");
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+
+        final TestHistoryWriter writer = new TestHistoryWriter(testHistoryDirectory);
+        writer.write("PageOne", new Date(NOW - 30 * DAY), 1000L);
+        writer.write("PageOne", new Date(NOW - 20 * DAY), 2000L);
+        writer.write("PageOne", new Date(NOW - 10 * DAY), 3000L);
+        writer.write("PageOne", new Date(NOW - DAY), 4000L);
+        writer.write("PageTwo", new Date(NOW - 30 * DAY), 5000L);
+    }
+
+    @Test
+    public void testNoHistory() throws Exception {
+        assertEquals(1L, new AverageRuntimeWeightStrategy(context).getWeight("PageThree"));
+    }
+
+    @Test
+    public void testAllRecords() throws Exception {
+        assertEquals(2500L, new AverageRuntimeWeightStrategy(context).getWeight("PageOne"));
+    }
+
+    @Test
+    public void testMaxRecords() throws Exception {
+        final AverageRuntimeWeightStrategy strategy = new AverageRuntimeWeightStrategy(context, 2, null, clock);
+
+        assertEquals(3500L, strategy.getWeight("PageOne"));
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        final AverageRuntimeWeightStrategy strategy =
+                new AverageRuntimeWeightStrategy(context, Integer.MAX_VALUE, Duration.ofDays(14), clock);
+
+        assertEquals(3500L, strategy.getWeight("PageOne"));
+        // latest record is kept even when it is outside the window
+        assertEquals(5000L, strategy.getWeight("PageTwo"));
+    }
 
 }
@@ -0,0 +1,110 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File testHistoryDirectory;
+    private FitNesseContext context;
+    private WeightStrategy delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        testHistoryDirectory = folder.newFolder("history");
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        delegate = mock(WeightStrategy.class);
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        when(delegate.getWeight("PageOne")).thenReturn(100L);
+
+        final CachingWeightStrategy strategy = new CachingWeightStrategy(context, delegate, 10);
+
+        assertEquals(100L, strategy.getWeight("PageOne"));
+        assertEquals(100L, strategy.getWeight("PageOne"));
+
+        verify(delegate, times(1)).getWeight("PageOne");
+        assertEquals(1L, strategy.getHitCount());
+        assertEquals(1L, strategy.getMissCount());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        when(delegate.getWeight("PageOne")).thenReturn(100L);
+        when(delegate.getWeight("PageTwo")).thenReturn(200L);
+        when(delegate.getWeight("PageThree")).thenReturn(300L);
+
+        final CachingWeightStrategy strategy = new CachingWeightStrategy(context, delegate, 2);
+
+        strategy.getWeight("PageOne");
+        strategy.getWeight("PageTwo");
+        strategy.getWeight("PageOne");
+        strategy.getWeight("PageThree");
+
+        // PageTwo was least recently used
+        strategy.getWeight("PageOne");
+        strategy.getWeight("PageTwo");
+
+        verify(delegate, times(1)).getWeight("PageOne");
+        verify(delegate, times(2)).getWeight("PageTwo");
+        assertEquals(2L, strategy.getEvictionCount());
+        assertEquals(2, strategy.size());
+    }
+
+    @Test
+    public void testInvalidatedByNewResult() throws Exception {
+        final TestHistoryWriter writer = new TestHistoryWriter(testHistoryDirectory);
+        writer.write("PageOne", new Date(1000000L), 100L);
+
+        when(delegate.getWeight("PageOne")).thenReturn(100L, 200L);
+
+        final CachingWeightStrategy strategy = new CachingWeightStrategy(context, delegate, 10);
+
+        assertEquals(100L, strategy.getWeight("PageOne"));
+
+        // within the same file system clock tick as the first record
+        final File pageDirectory = new File(testHistoryDirectory, "PageOne");
+        final long lastModified = pageDirectory.lastModified();
+        writer.write("PageOne", new Date(2000000L), 200L);
+        pageDirectory.setLastModified(lastModified);
+
+        assertEquals(200L, strategy.getWeight("PageOne"));
+        assertEquals(200L, strategy.getWeight("PageOne"));
+
+        verify(delegate, times(2)).getWeight("PageOne");
+    }
+
+    @Test
+    public void testInvalidatedByFirstResult() throws Exception {
+        when(delegate.getWeight("PageOne")).thenReturn(1L, 100L);
+
+        final CachingWeightStrategy strategy = new CachingWeightStrategy(context, delegate, 10);
+
+        assertEquals(1L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight("PageOne"));
+
+        new TestHistoryWriter(testHistoryDirectory).write("PageOne", new Date(1000000L), 100L);
+
+        assertEquals(100L, strategy.getWeight("PageOne"));
+        verify(delegate, times(2)).getWeight("PageOne");
+    }
+
+}
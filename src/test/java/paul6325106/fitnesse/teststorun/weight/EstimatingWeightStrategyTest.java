@@ -0,0 +1,147 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.util.WikiPageUtil;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EstimatingWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FitNesseContext context;
+    private TestHistoryWriter writer;
+    private WikiPage suitePage;
+
+    @Before
+    public void setUp() throws Exception {
+        final File testHistoryDirectory = folder.newFolder("history");
+        final WikiPage root = FitNesseUtil.makeTestContext().getRootPage();
+
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        when(context.getRootPage()).thenReturn(root);
+
+        writer = new TestHistoryWriter(testHistoryDirectory);
+        suitePage = WikiPageUtil.addPage(root, "SuitePage", "", PageType.SUITE);
+    }
+
+    @Test
+    public void testPageWithHistory() throws Exception {
+        writer.write("SuitePage.PageOne", new Date(), 500L);
+
+        assertEquals(500L, getStrategy().getWeight("SuitePage.PageOne"));
+    }
+
+    @Test
+    public void testRenamedPage() throws Exception {
+        writer.write("SuitePage.OldName", new Date(), 700L);
+
+        final EstimatingWeightStrategy strategy = new EstimatingWeightStrategy(context,
+                new LatestRuntimeWeightStrategy(context),
+                Collections.singletonMap("OtherSuite.NewName", "SuitePage.OldName"), 10L);
+
+        assertEquals(700L, strategy.getWeight("OtherSuite.NewName"));
+    }
+
+    @Test
+    public void testSiblingMedian() throws Exception {
+        writer.write("SuitePage.PageOne", new Date(), 100L);
+        writer.write("SuitePage.PageTwo", new Date(), 300L);
+        writer.write("SuitePage.PageThree", new Date(), 9000L);
+        writer.write("OtherSuite.PageFour", new Date(), 50000L);
+
+        assertEquals(300L, getStrategy().getWeight("SuitePage.NewPage"));
+    }
+
+    @Test
+    public void testSiblingMedianExcludesSuites() throws Exception {
+        writer.write("SuitePage.PageOne", new Date(), 100L);
+        writer.write("SuitePage.ChildSuite", new Date(), 10000L);
+        writer.write("SuitePage.ChildSuite.PageTwo", new Date(), 5000L);
+        writer.write("SuitePage.OtherChildSuite", new Date(), 20000L);
+        writer.write("SuitePage.OtherChildSuite.NestedSuite.PageThree", new Date(), 20000L);
+
+        assertEquals(100L, getStrategy().getWeight("SuitePage.NewPage"));
+    }
+
+    @Test
+    public void testHistoryAfterConstruction() throws Exception {
+        writer.write("SuitePage.PageOne", new Date(), 100L);
+        writer.write("SuitePage.PageTwo", new Date(), 300L);
+
+        // LatestRuntimeWeightStrategy only reads the test history once
+        final WeightStrategy delegate = mock(WeightStrategy.class);
+        when(delegate.getWeight("SuitePage.PageOne")).thenReturn(100L);
+        when(delegate.getWeight("SuitePage.PageTwo")).thenReturn(300L);
+        when(delegate.getWeight("SuitePage.NewPage")).thenReturn(5000L);
+        when(delegate.getWeight("SuitePage.PageThree")).thenReturn(9000L);
+        when(delegate.getWeight("SuitePage.PageFour")).thenReturn(9000L);
+
+        final EstimatingWeightStrategy strategy =
+                new EstimatingWeightStrategy(context, delegate, Collections.emptyMap(), 10L);
+        assertEquals(300L, strategy.getWeight("SuitePage.NewPage"));
+
+        writer.write("SuitePage.NewPage", new Date(), 5000L);
+        writer.write("SuitePage.PageThree", new Date(), 9000L);
+        writer.write("SuitePage.PageFour", new Date(), 9000L);
+
+        assertEquals(5000L, strategy.getWeight("SuitePage.NewPage"));
+        // sibling medians are kept until refreshed
+        assertEquals(300L, strategy.getWeight("SuitePage.OtherPage"));
+
+        strategy.refresh();
+        assertEquals(5000L, strategy.getWeight("SuitePage.OtherPage"));
+    }
+
+    @Test
+    public void testSuiteSetUpTearDownNotEstimated() throws Exception {
+        writer.write("SuitePage.PageOne", new Date(), 100L);
+        writer.write("SuitePage.PageTwo", new Date(), 300L);
+
+        final WeightStrategy delegate = mock(WeightStrategy.class);
+        when(delegate.getWeight("SuitePage.SuiteSetUp")).thenReturn(7L);
+        when(delegate.getWeight("SuitePage.SuiteTearDown")).thenReturn(3L);
+
+        final EstimatingWeightStrategy strategy =
+                new EstimatingWeightStrategy(context, delegate, Collections.emptyMap(), 10L);
+
+        assertEquals(7L, strategy.getWeight("SuitePage.SuiteSetUp"));
+        assertEquals(3L, strategy.getWeight("SuitePage.SuiteTearDown"));
+    }
+
+    @Test
+    public void testTableRows() throws Exception {
+        WikiPageUtil.addPage(suitePage, "NewPage", "!|script|\n|check|a|1|\n|check|b|2|\n\ntext", PageType.TEST);
+
+        assertEquals(30L, getStrategy().getWeight("SuitePage.NewPage"));
+    }
+
+    @Test
+    public void testNoEstimate() throws Exception {
+        WikiPageUtil.addPage(suitePage, "NewPage", "no tables", PageType.TEST);
+
+        assertEquals(1L, getStrategy().getWeight("SuitePage.NewPage"));
+        assertEquals(1L, getStrategy().getWeight("SuitePage.MissingPage"));
+    }
+
+    private EstimatingWeightStrategy getStrategy() {
+        return new EstimatingWeightStrategy(context, new LatestRuntimeWeightStrategy(context),
+                Collections.emptyMap(), 10L);
+    }
+
+}
@@ -0,0 +1,74 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EwmaRuntimeWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File testHistoryDirectory;
+    private FitNesseContext context;
+    private TestHistoryWriter writer;
+    private File stateFile;
+
+    @Before
+    public void setUp() throws Exception {
+        testHistoryDirectory = folder.newFolder("history");
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        writer = new TestHistoryWriter(testHistoryDirectory);
+        stateFile = new File(folder.getRoot(), "ewma.bin");
+    }
+
+    @Test
+    public void testNoHistory() throws Exception {
+        final EwmaRuntimeWeightStrategy strategy = new EwmaRuntimeWeightStrategy(context, stateFile, 0.5);
+
+        assertEquals(1L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight(null));
+    }
+
+    @Test
+    public void testAverage() throws Exception {
+        writer.write("PageOne", new Date(1000000L), 100L);
+        writer.write("PageOne", new Date(2000000L), 300L);
+        writer.write("PageOne", new Date(3000000L), 500L);
+
+        final EwmaRuntimeWeightStrategy strategy = new EwmaRuntimeWeightStrategy(context, stateFile, 0.5);
+
+        // 100 -> 200 -> 350
+        assertEquals(350L, strategy.getWeight("PageOne"));
+    }
+
+    @Test
+    public void testIncrementalUpdateFromPersistedState() throws Exception {
+        writer.write("PageOne", new Date(1000000L), 100L);
+
+        new EwmaRuntimeWeightStrategy(context, stateFile, 0.5);
+
+        // old records are not read again, so removing them must not change the average
+        final File oldRecord = writer.write("PageOne", new Date(1000000L), 100L);
+        writer.write("PageOne", new Date(2000000L), 300L);
+        oldRecord.delete();
+
+        final EwmaRuntimeWeightStrategy strategy = new EwmaRuntimeWeightStrategy(context, stateFile, 0.5);
+        assertEquals(200L, strategy.getWeight("PageOne"));
+
+        writer.write("PageOne", new Date(3000000L), 1200L);
+        strategy.refresh();
+        assertEquals(700L, strategy.getWeight("PageOne"));
+    }
+
+}
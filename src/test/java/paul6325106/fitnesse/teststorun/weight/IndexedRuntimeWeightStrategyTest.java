@@ -0,0 +1,66 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IndexedRuntimeWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FitNesseContext context;
+    private TestHistoryWriter writer;
+    private File indexFile;
+
+    @Before
+    public void setUp() throws Exception {
+        final File testHistoryDirectory = folder.newFolder("history");
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        writer = new TestHistoryWriter(testHistoryDirectory);
+        indexFile = new File(folder.getRoot(), "runtimes.idx");
+    }
+
+    @Test
+    public void testNoHistory() throws Exception {
+        try (final IndexedRuntimeWeightStrategy strategy = new IndexedRuntimeWeightStrategy(context, indexFile)) {
+            assertEquals(1L, strategy.getWeight("PageOne"));
+            assertEquals(1L, strategy.getWeight(null));
+        }
+    }
+
+    @Test
+    public void testIncrementalRefresh() throws Exception {
+        writer.write("PageOne", new Date(1000000L), 100L);
+        writer.write("PageOne", new Date(2000000L), 300L);
+
+        try (final IndexedRuntimeWeightStrategy strategy =
+                     new IndexedRuntimeWeightStrategy(context, indexFile, RuntimeSummary::getLatest)) {
+
+            assertEquals(300L, strategy.getWeight("PageOne"));
+
+            writer.write("PageOne", new Date(3000000L), 500L);
+            writer.write("PageTwo", new Date(3000000L), 700L);
+            strategy.refresh();
+
+            assertEquals(500L, strategy.getWeight("PageOne"));
+            assertEquals(700L, strategy.getWeight("PageTwo"));
+        }
+
+        // reopening must not fold in the same records twice
+        try (final IndexedRuntimeWeightStrategy strategy = new IndexedRuntimeWeightStrategy(context, indexFile)) {
+            assertEquals(300L, strategy.getWeight("PageOne"));
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PercentileRuntimeWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FitNesseContext context;
+    private TestHistoryWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        final File testHistoryDirectory = folder.newFolder("history");
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        writer = new TestHistoryWriter(testHistoryDirectory);
+    }
+
+    @Test
+    public void testNoHistory() throws Exception {
+        final PercentileRuntimeWeightStrategy strategy = new PercentileRuntimeWeightStrategy(context, 0.9);
+
+        assertEquals(1L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight(null));
+    }
+
+    @Test
+    public void testQuantile() throws Exception {
+        // nine fast runs and one slow run
+        for (int i = 1; i <= 9; ++i) {
+            writer.write("PageOne", new Date(i * 1000000L), 100L);
+        }
+        writer.write("PageOne", new Date(10000000L), 10000L);
+
+        assertWithinTenPercent(100L, new PercentileRuntimeWeightStrategy(context, 0.5).getWeight("PageOne"));
+        assertWithinTenPercent(100L, new PercentileRuntimeWeightStrategy(context, 0.9).getWeight("PageOne"));
+        assertWithinTenPercent(10000L, new PercentileRuntimeWeightStrategy(context, 0.99).getWeight("PageOne"));
+        assertWithinTenPercent(10000L, new PercentileRuntimeWeightStrategy(context, 1.0).getWeight("PageOne"));
+    }
+
+    @Test
+    public void testFallbackWeight() throws Exception {
+        writer.write("PageOne", new Date(1000000L), 500L);
+
+        final PercentileRuntimeWeightStrategy strategy = new PercentileRuntimeWeightStrategy(context, 0.9);
+
+        assertWithinTenPercent(500L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight("PageTwo"));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        writer.write("PageOne", new Date(1000000L), 100L);
+
+        final PercentileRuntimeWeightStrategy strategy = new PercentileRuntimeWeightStrategy(context, 1.0);
+        assertWithinTenPercent(100L, strategy.getWeight("PageOne"));
+
+        writer.write("PageOne", new Date(2000000L), 2000L);
+        writer.write("PageTwo", new Date(2000000L), 300L);
+        strategy.refresh();
+
+        assertWithinTenPercent(2000L, strategy.getWeight("PageOne"));
+        assertWithinTenPercent(300L, strategy.getWeight("PageTwo"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuantile() throws Exception {
+        new PercentileRuntimeWeightStrategy(context, 0);
+    }
+
+    private static void assertWithinTenPercent(final long expected, final long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 10);
+    }
+
+}
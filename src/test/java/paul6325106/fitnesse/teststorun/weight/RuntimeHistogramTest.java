@@ -0,0 +1,66 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RuntimeHistogramTest {
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertEquals(0L, new RuntimeHistogram().getQuantile(0.5));
+    }
+
+    @Test
+    public void testQuantiles() throws Exception {
+        final RuntimeHistogram histogram = new RuntimeHistogram();
+
+        for (long runtime = 1; runtime <= 1000; ++runtime) {
+            histogram.add(runtime * 100);
+        }
+
+        assertEquals(1000L, histogram.getCount());
+        assertWithinTenPercent(50000L, histogram.getQuantile(0.5));
+        assertWithinTenPercent(90000L, histogram.getQuantile(0.9));
+        assertWithinTenPercent(99000L, histogram.getQuantile(0.99));
+        assertWithinTenPercent(100000L, histogram.getQuantile(1.0));
+    }
+
+    @Test
+    public void testLongTail() throws Exception {
+        final RuntimeHistogram histogram = new RuntimeHistogram();
+
+        for (int i = 0; i < 95; ++i) {
+            histogram.add(1000L);
+        }
+        for (int i = 0; i < 5; ++i) {
+            histogram.add(60000L);
+        }
+
+        assertWithinTenPercent(1000L, histogram.getQuantile(0.5));
+        assertWithinTenPercent(60000L, histogram.getQuantile(0.99));
+    }
+
+    @Test
+    public void testMerge() throws Exception {
+        final RuntimeHistogram one = new RuntimeHistogram();
+        final RuntimeHistogram two = new RuntimeHistogram();
+
+        for (int i = 0; i < 10; ++i) {
+            one.add(1000L);
+            two.add(5000L);
+        }
+
+        one.merge(two);
+
+        assertEquals(20L, one.getCount());
+        assertWithinTenPercent(1000L, one.getQuantile(0.5));
+        assertWithinTenPercent(5000L, one.getQuantile(0.55));
+    }
+
+    private static void assertWithinTenPercent(final long expected, final long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 10);
+    }
+
+}
@@ -0,0 +1,105 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RuntimeIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGetMissing() throws Exception {
+        try (final RuntimeIndex index = new RuntimeIndex(folder.newFile())) {
+            assertNull(index.get("PageOne"));
+            assertNull(index.get(null));
+            assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    public void testPutAndReplace() throws Exception {
+        try (final RuntimeIndex index = new RuntimeIndex(folder.newFile())) {
+            final RuntimeSummary summary = RuntimeSummary.of(1000L, 50L);
+            index.put("PageOne", summary);
+            assertEquals(summary, index.get("PageOne"));
+
+            final RuntimeSummary added = summary.add(2000L, 150L);
+            index.put("PageOne", added);
+            assertEquals(added, index.get("PageOne"));
+            assertEquals(1, index.size());
+
+            assertEquals(2000L, added.getLatestTime());
+            assertEquals(150L, added.getLatest());
+            assertEquals(2L, added.getCount());
+            assertEquals(100L, added.getAverage());
+            assertEquals(50L, added.getMin());
+            assertEquals(150L, added.getMax());
+        }
+    }
+
+    @Test
+    public void testGrowAndReopen() throws Exception {
+        final File file = folder.newFile();
+
+        try (final RuntimeIndex index = new RuntimeIndex(file)) {
+            for (int i = 0; i < 5000; ++i) {
+                index.put("Suite.Page" + i, RuntimeSummary.of(i, i * 10L));
+            }
+        }
+
+        try (final RuntimeIndex index = new RuntimeIndex(file)) {
+            assertEquals(5000, index.size());
+
+            for (int i = 0; i < 5000; ++i) {
+                assertEquals(RuntimeSummary.of(i, i * 10L), index.get("Suite.Page" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidHeader() throws Exception {
+        // truncated
+        assertReplaced(1024, 0, 512);
+        // not a power of two
+        assertReplaced(1000, 0, 1000);
+        // full, so probing would never find an empty slot
+        assertReplaced(1024, 1024, 1024);
+        assertReplaced(1024, -1, 1024);
+    }
+
+    /**
+     * Writes an index header with the capacity and size given, followed by a number of empty slots, then expects it
+     * to be replaced with an empty index which can be used and reopened.
+     */
+    private void assertReplaced(final int capacity, final int size, final int slots) throws Exception {
+        final File file = folder.newFile();
+
+        try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x46524958);
+            out.writeInt(1);
+            out.writeInt(capacity);
+            out.writeInt(size);
+            out.write(new byte[slots * 64]);
+        }
+
+        try (final RuntimeIndex index = new RuntimeIndex(file)) {
+            assertEquals(0, index.size());
+            assertNull(index.get("PageOne"));
+            index.put("PageOne", RuntimeSummary.of(1000L, 50L));
+        }
+
+        try (final RuntimeIndex index = new RuntimeIndex(file)) {
+            assertEquals(RuntimeSummary.of(1000L, 50L), index.get("PageOne"));
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+import paul6325106.fitnesse.util.RuntimeLog;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RuntimeLogWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File logFile;
+
+    @Before
+    public void setUp() throws Exception {
+        logFile = new File(folder.getRoot(), "runtimes.log");
+    }
+
+    @Test
+    public void testNoLog() throws Exception {
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile);
+
+        assertEquals(1L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight(null));
+    }
+
+    @Test
+    public void testMeasure() throws Exception {
+        append(true, "PageOne", 1000L, 100L);
+        append(false, "PageOne", 2000L, 300L);
+        append(false, "PageTwo", 2000L, 50L);
+
+        assertEquals(200L, new RuntimeLogWeightStrategy(logFile).getWeight("PageOne"));
+        assertEquals(300L, new RuntimeLogWeightStrategy(logFile, RuntimeSummary::getLatest).getWeight("PageOne"));
+        assertEquals(50L, new RuntimeLogWeightStrategy(logFile).getWeight("PageTwo"));
+        assertEquals(1L, new RuntimeLogWeightStrategy(logFile).getWeight("PageThree"));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        append(true, "PageOne", 1000L, 100L);
+
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile, RuntimeSummary::getMax);
+        assertEquals(100L, strategy.getWeight("PageOne"));
+
+        append(false, "PageOne", 2000L, 900L);
+        append(false, "PageTwo", 2000L, 70L);
+        strategy.refresh();
+
+        assertEquals(900L, strategy.getWeight("PageOne"));
+        assertEquals(70L, strategy.getWeight("PageTwo"));
+
+        // records already read are not counted again
+        final RuntimeLogWeightStrategy counts = new RuntimeLogWeightStrategy(logFile, RuntimeSummary::getCount);
+        counts.refresh();
+        assertEquals(2L, counts.getWeight("PageOne"));
+    }
+
+    @Test
+    public void testPartialRecord() throws Exception {
+        append(true, "PageOne", 1000L, 100L);
+
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile, RuntimeSummary::getMax);
+
+        // a write which failed part way through, followed by records written after it
+        final byte[] record = getRecord("PageTwo", 2000L, 200L);
+        appendBytes(Arrays.copyOf(record, record.length - 5));
+        append(false, "PageOne", 3000L, 300L);
+        strategy.refresh();
+
+        assertEquals(100L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight("PageTwo"));
+    }
+
+    @Test
+    public void testCorruptRecord() throws Exception {
+        append(true, "PageOne", 1000L, 100L);
+
+        final byte[] record = getRecord("PageTwo", 2000L, 200L);
+        record[6] ^= 0x01;
+        appendBytes(record);
+        append(false, "PageThree", 3000L, 300L);
+
+        final RuntimeLogWeightStrategy strategy = new RuntimeLogWeightStrategy(logFile);
+
+        assertEquals(100L, strategy.getWeight("PageOne"));
+        assertEquals(1L, strategy.getWeight("PageTwo"));
+        assertEquals(1L, strategy.getWeight("PageThree"));
+    }
+
+    @Test
+    public void testNotARuntimeLog() throws Exception {
+        Files.write(logFile.toPath(), "not a runtime log".getBytes());
+
+        try {
+            new RuntimeLogWeightStrategy(logFile);
+            fail();
+        } catch (final TestsToRunContextGeneratorException e) {
+            assertEquals(TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT, e.getReason());
+        }
+    }
+
+    private void append(final boolean header, final String pathName, final long time, final long runtime)
+            throws IOException {
+
+        try (final DataOutputStream out = new DataOutputStream(new FileOutputStream(logFile, true))) {
+            if (header) {
+                RuntimeLog.writeHeader(out);
+            }
+            RuntimeLog.writeRecord(out, pathName, time, runtime);
+        }
+    }
+
+    private void appendBytes(final byte[] bytes) throws IOException {
+        try (final FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] getRecord(final String pathName, final long time, final long runtime) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RuntimeLog.writeRecord(new DataOutputStream(bytes), pathName, time, runtime);
+        return bytes.toByteArray();
+    }
+
+}
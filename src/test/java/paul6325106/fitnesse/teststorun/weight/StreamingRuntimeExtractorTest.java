@@ -0,0 +1,72 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class StreamingRuntimeExtractorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StreamingRuntimeExtractor extractor;
+
+    @Before
+    public void setUp() throws Exception {
+        extractor = new StreamingRuntimeExtractor();
+    }
+
+    @Test
+    public void testRuntime() throws Exception {
+        final File file = new TestHistoryWriter(folder.getRoot()).write("PageOne", new Date(), 12345L);
+
+        assertEquals(12345L, extractor.getRuntime(file));
+    }
+
+    @Test
+    public void testRuntimeAfterLargeContent() throws Exception {
+        final String content = String.join("", Collections.nCopies(100000, "&lt;td&gt;cell&lt;/td&gt;"));
+        final File file = new TestHistoryWriter(folder.getRoot()).write("PageOne", new Date(), 67890L, content);
+
+        assertEquals(67890L, extractor.getRuntime(file));
+    }
+
+    @Test
+    public void testNoRuntime() throws Exception {
+        final File file = write("<?xml version=\"1.0\"?><testResults><result>" +
+                "<runTimeInMillis>5</runTimeInMillis></result></testResults>");
+
+        assertEquals(-1L, extractor.getRuntime(file));
+    }
+
+    @Test
+    public void testInvalidRecord() throws Exception {
+        final File file = write("<?xml version=\"1.0\"?><testResults><totalRunTimeInMillis>");
+
+        try {
+            extractor.getRuntime(file);
+            fail();
+        } catch (final TestsToRunContextGeneratorException e) {
+            assertEquals(TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT, e.getReason());
+        }
+    }
+
+    private File write(final String xml) throws Exception {
+        final File file = folder.newFile();
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
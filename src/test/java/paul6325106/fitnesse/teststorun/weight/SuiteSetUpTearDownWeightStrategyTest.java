@@ -0,0 +1,160 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.FitNesseContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorException;
+import paul6325106.fitnesse.teststorun.exception.TestsToRunContextGeneratorReason;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SuiteSetUpTearDownWeightStrategyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File testHistoryDirectory;
+    private FitNesseContext context;
+    private WeightStrategy delegate;
+
+    @Before
+    public void setUp() throws Exception {
+        testHistoryDirectory = folder.newFolder("history");
+        context = mock(FitNesseContext.class);
+        when(context.getTestHistoryDirectory()).thenReturn(testHistoryDirectory);
+        delegate = mock(WeightStrategy.class);
+        when(delegate.getWeight("SuitePage.TestPage")).thenReturn(50L);
+        when(delegate.getWeight("SuitePage.SuiteSetUp")).thenReturn(1L);
+        when(delegate.getWeight(null)).thenReturn(1L);
+    }
+
+    @Test
+    public void testNoSuiteReports() throws Exception {
+        new TestHistoryWriter(testHistoryDirectory).write("SuitePage.TestPage", new Date(), 50L);
+
+        final SuiteSetUpTearDownWeightStrategy strategy = new SuiteSetUpTearDownWeightStrategy(context, delegate);
+
+        assertEquals(1L, strategy.getWeight("SuitePage.SuiteSetUp"));
+        assertEquals(50L, strategy.getWeight("SuitePage.TestPage"));
+        assertEquals(1L, strategy.getWeight(null));
+    }
+
+    @Test
+    public void testSuiteReports() throws Exception {
+        writeSuiteReport("20161106100000", 90000L, 40L, 2000L);
+        writeSuiteReport("20161106110000", 70000L, 60L, 4000L);
+
+        final SuiteSetUpTearDownWeightStrategy strategy = new SuiteSetUpTearDownWeightStrategy(context, delegate);
+
+        assertEquals(80000L, strategy.getWeight("SuitePage.SuiteSetUp"));
+        assertEquals(3000L, strategy.getWeight("SuitePage.SuiteTearDown"));
+        // ordinary pages are left to the delegate
+        assertEquals(50L, strategy.getWeight("SuitePage.TestPage"));
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        writeSuiteReport("20161106100000", 90000L, 40L, 2000L);
+
+        final SuiteSetUpTearDownWeightStrategy strategy =
+                new SuiteSetUpTearDownWeightStrategy(context, delegate, RuntimeSummary::getLatest);
+
+        assertEquals(90000L, strategy.getWeight("SuitePage.SuiteSetUp"));
+
+        writeSuiteReport("20161106110000", 30000L, 60L, 4000L);
+        strategy.refresh();
+        strategy.refresh();
+
+        assertEquals(30000L, strategy.getWeight("SuitePage.SuiteSetUp"));
+    }
+
+    @Test
+    public void testOnlySuiteDirectoriesRead() throws Exception {
+        writeSuiteReport("20161106100000", 90000L, 40L, 2000L);
+
+        // never opened, as no page in the test history directory is below it
+        final File directory = new File(testHistoryDirectory, "OtherPage");
+        directory.mkdirs();
+        Files.write(new File(directory, "20161106100000_1_0_0_0.xml").toPath(), "<unreadable".getBytes());
+
+        final SuiteSetUpTearDownWeightStrategy strategy = new SuiteSetUpTearDownWeightStrategy(context, delegate);
+
+        assertEquals(90000L, strategy.getWeight("SuitePage.SuiteSetUp"));
+    }
+
+    @Test
+    public void testRefreshAfterUnreadableReport() throws Exception {
+        writeSuiteReport("20161106100000", 90000L, 40L, 2000L);
+
+        final SuiteSetUpTearDownWeightStrategy strategy =
+                new SuiteSetUpTearDownWeightStrategy(context, delegate, RuntimeSummary::getCount);
+
+        writeSuiteReport("20161106110000", 30000L, 60L, 4000L);
+        final File unreadable = new File(testHistoryDirectory, "SuitePage/20161106120000_3_0_0_0.xml");
+        Files.write(unreadable.toPath(), "<unreadable".getBytes());
+
+        try {
+            strategy.refresh();
+            fail();
+        } catch (final TestsToRunContextGeneratorException e) {
+            assertEquals(TestsToRunContextGeneratorReason.UNABLE_TO_GET_WIKI_PAGE_WEIGHT, e.getReason());
+        }
+
+        assertTrue(unreadable.delete());
+        writeSuiteReport("20161106120000", 50000L, 60L, 4000L);
+        strategy.refresh();
+
+        // the report read before the failure is not counted twice
+        assertEquals(3L, strategy.getWeight("SuitePage.SuiteSetUp"));
+    }
+
+    private void writeSuiteReport(final String date, final long setUp, final long test, final long tearDown)
+            throws Exception {
+
+        final File directory = new File(testHistoryDirectory, "SuitePage");
+        directory.mkdirs();
+
+        // running a suite also records each of its pages
+        final TestHistoryWriter writer = new TestHistoryWriter(testHistoryDirectory);
+        final Date time = new SimpleDateFormat("yyyyMMddHHmmss").parse(date);
+        writer.write("SuitePage.SuiteSetUp", time, setUp);
+        writer.write("SuitePage.TestPage", time, test);
+        writer.write("SuitePage.SuiteTearDown", time, tearDown);
+
+        final String xml = "<?xml version=\"1.0\"?>\n" +
+                "<suiteResults>\n" +
+                "  <FitNesseVersion>v20161106</FitNesseVersion>\n" +
+                "  <rootPath>SuitePage</rootPath>\n" +
+                reference("SuitePage.SuiteSetUp", date, setUp) +
+                reference("SuitePage.TestPage", date, test) +
+                reference("SuitePage.SuiteTearDown", date, tearDown) +
+                "  <totalRunTimeInMillis>" + (setUp + test + tearDown) + "</totalRunTimeInMillis>\n" +
+                "</suiteResults>\n";
+
+        Files.write(new File(directory, date + "_3_0_0_0.xml").toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String reference(final String pageName, final String date, final long runtime) {
+        return "  <pageHistoryReference>\n" +
+                "    <name>" + pageName + "</name>\n" +
+                "    <date>2016-11-06T00:00:00+00:00</date>\n" +
+                "    <pageHistoryLink>" + pageName + "?pageHistory&amp;resultDate=" + date + "</pageHistoryLink>\n" +
+                "    <counts><right>1</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions>" +
+                "</counts>\n" +
+                "    <runTimeInMillis>" + runtime + "</runTimeInMillis>\n" +
+                "  </pageHistoryReference>\n";
+    }
+
+}
@@ -0,0 +1,56 @@
+package paul6325106.fitnesse.teststorun.weight;
+
+import fitnesse.reporting.history.PageHistory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+
+/**
+ * Writes minimal test result records into a test history directory, in the layout read by TestHistory.
+ */
+class TestHistoryWriter {
+
+    private final File testHistoryDirectory;
+
+    TestHistoryWriter(final File testHistoryDirectory) {
+        this.testHistoryDirectory = testHistoryDirectory;
+    }
+
+    File write(final String pathName, final Date date, final long runtime) throws IOException {
+        return write(pathName, date, runtime, "");
+    }
+
+    File write(final String pathName, final Date date, final long runtime, final String content)
+            throws IOException {
+
+        final File pageDirectory = new File(testHistoryDirectory, pathName);
+        pageDirectory.mkdirs();
+
+        final File file = new File(pageDirectory,
+                PageHistory.formatDate("yyyyMMddHHmmss", date) + "_1_0_0_0.xml");
+
+        final String xml = "<?xml version=\"1.0\"?>\n" +
+                "<testResults>\n" +
+                "  <FitNesseVersion>v20161106</FitNesseVersion>\n" +
+                "  <rootPath>" + pathName + "</rootPath>\n" +
+                "  <result>\n" +
+                "    <counts><right>1</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions>" +
+                "</counts>\n" +
+                "    <date>2016-11-06T00:00:00+00:00</date>\n" +
+                "    <runTimeInMillis>" + runtime + "</runTimeInMillis>\n" +
+                "    <content>" + content + "</content>\n" +
+                "    <relativePageName>" + pathName + "</relativePageName>\n" +
+                "  </result>\n" +
+                "  <finalCounts><right>1</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions>" +
+                "</finalCounts>\n" +
+                "  <totalRunTimeInMillis>" + runtime + "</totalRunTimeInMillis>\n" +
+                "</testResults>\n";
+
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
@@ -0,0 +1,188 @@
+package paul6325106.fitnesse.util;
+
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.SystemVariableSource;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageProperty;
+import fitnesse.wiki.fs.FileSystemPage;
+import fitnesse.wiki.fs.FileSystemPageFactory;
+import fitnesse.wiki.fs.WikiFilePage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static paul6325106.fitnesse.util.WikiPageUtil.addPage;
+
+public class PageMetadataLoaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testInMemoryPages() throws Exception {
+        final WikiPage root = FitNesseUtil.makeTestContext().getRootPage();
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage testPage = addPage(suitePage, "TestPage", "", PageType.TEST);
+        setAttributes(testPage, "smoke, slow", true);
+
+        assertMatchesPageData(root);
+        assertMatchesPageData(suitePage);
+        assertMatchesPageData(testPage);
+
+        final PageMetadata metadata = PageMetadataLoader.load(testPage);
+        assertTrue(metadata.isPageType(PageType.TEST));
+        assertTrue(metadata.isPruned());
+        assertEquals("smoke, slow", metadata.getTags());
+    }
+
+    @Test
+    public void testWikiFilePages() throws Exception {
+        final WikiPage root = makeFileRoot();
+        final WikiPage suitePage = addPage(root, "SuitePage", "", PageType.SUITE);
+        final WikiPage testPage = addPage(suitePage, "TestPage", "", PageType.TEST);
+        final WikiPage staticPage = addPage(suitePage, "TestStaticPage", "", PageType.STATIC);
+        setAttributes(testPage, "smoke", true);
+
+        final PageData data = staticPage.getData();
+        data.removeAttribute(PageType.TEST.toString());
+        staticPage.commit(data);
+
+        assertTrue(testPage instanceof WikiFilePage);
+        assertMatchesPageData(suitePage);
+        assertMatchesPageData(testPage);
+        assertMatchesPageData(staticPage);
+
+        // named like a test page, but its front matter turns the test page type off
+        assertTrue(PageMetadataLoader.load(staticPage).isPageType(PageType.STATIC));
+        assertFalse(PageMetadataLoader.load(staticPage).isPageType(PageType.TEST));
+    }
+
+    @Test
+    public void testWikiFilePageFrontMatter() throws Exception {
+        final WikiPage root = makeFileRoot();
+        final WikiPage page = addPage(root, "SomePage", "", PageType.STATIC);
+
+        final File wikiFile = new File(((WikiFilePage) page).getFileSystemPath().getPath() + ".wiki");
+        write(wikiFile, "---\nTest\nSuites: smoke\nPrune: yes\nEdit: no\nSymbolicLinks:\n  OtherPage: .OtherPage\n---\n"
+                + "!define Suites {not front matter}\n---\nSuite\n---\n");
+
+        final PageMetadata metadata = PageMetadataLoader.load(page);
+        assertTrue(metadata.isPageType(PageType.TEST));
+        assertFalse(metadata.isPageType(PageType.SUITE));
+        assertTrue(metadata.isPruned());
+        assertFalse(metadata.hasAttribute(WikiPageProperty.EDIT));
+        assertEquals("smoke", metadata.getTags());
+        assertMatchesPageData(page);
+    }
+
+    @Test
+    public void testFileSystemPages() throws Exception {
+        final File rootDirectory = new File(temporaryFolder.getRoot(), "FitNesseRoot");
+        final File suiteDirectory = new File(rootDirectory, "SuitePage");
+        final File testDirectory = new File(suiteDirectory, "TestPage");
+        assertTrue(testDirectory.mkdirs());
+
+        write(new File(suiteDirectory, "content.txt"), "!contents\n");
+        write(new File(suiteDirectory, "properties.xml"), "<?xml version=\"1.0\"?>\n<properties>\n\t<Edit/>\n"
+                + "\t<Prune/>\n\t<Suite/>\n\t<Suites>smoke</Suites>\n</properties>\n");
+        // no properties.xml, so the page type comes from the page name
+        write(new File(testDirectory, "content.txt"), "|script|\n");
+
+        final WikiPage root = makeFileRoot();
+        final WikiPage suitePage = root.getChildPage("SuitePage");
+        final WikiPage testPage = suitePage.getChildPage("TestPage");
+
+        assertTrue(suitePage instanceof FileSystemPage);
+        assertMatchesPageData(suitePage);
+        assertMatchesPageData(testPage);
+
+        assertTrue(PageMetadataLoader.load(suitePage).isPruned());
+        assertEquals("smoke", PageMetadataLoader.load(suitePage).getTags());
+        assertTrue(PageMetadataLoader.load(testPage).isPageType(PageType.TEST));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        final WikiPage root = FitNesseUtil.makeTestContext().getRootPage();
+        final WikiPage testPage = addPage(root, "TestPage", "", PageType.TEST);
+        final PageMetadataLoader loader = new PageMetadataLoader();
+
+        final PageMetadata metadata = loader.getMetadata(testPage);
+        assertSame(metadata, loader.getMetadata(testPage));
+        assertSame(metadata, loader.getMetadata(root.getChildPage("TestPage")));
+        assertNotSame(metadata, loader.getMetadata(root));
+    }
+
+    @Test
+    public void testCacheDoesNotReadAgain() throws Exception {
+        final File suiteDirectory = new File(new File(temporaryFolder.getRoot(), "FitNesseRoot"), "SuitePage");
+        assertTrue(suiteDirectory.mkdirs());
+        write(new File(suiteDirectory, "content.txt"), "!contents\n");
+        writeProperties(suiteDirectory, PageType.SUITE);
+
+        final WikiPage suitePage = makeFileRoot().getChildPage("SuitePage");
+        final PageMetadataLoader loader = new PageMetadataLoader();
+
+        assertTrue(WikiPageUtil.isPageType(suitePage, PageType.SUITE, loader));
+        assertTrue(WikiPageUtil.isPageType(suitePage, PageType.SUITE));
+
+        writeProperties(suiteDirectory, PageType.STATIC);
+
+        // the file has changed on disk, but neither the loader nor the page's own data read it again
+        assertTrue(PageMetadataLoader.load(suitePage).isPageType(PageType.STATIC));
+        assertTrue(WikiPageUtil.isPageType(suitePage, PageType.SUITE, loader));
+        assertTrue(WikiPageUtil.isPageType(suitePage, PageType.SUITE));
+    }
+
+    private WikiPage makeFileRoot() {
+        return new FileSystemPageFactory().makePage(new File(temporaryFolder.getRoot(), "FitNesseRoot"),
+                "FitNesseRoot", null, new SystemVariableSource());
+    }
+
+    private static void setAttributes(final WikiPage page, final String tags, final boolean prune) {
+        final PageData data = page.getData();
+        data.setAttribute(WikiPageProperty.SUITES, tags);
+        if (prune) {
+            data.setAttribute(WikiPageProperty.PRUNE);
+        }
+        page.commit(data);
+    }
+
+    private static void write(final File file, final String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeProperties(final File directory, final PageType type) throws Exception {
+        write(new File(directory, "properties.xml"),
+                "<?xml version=\"1.0\"?>\n<properties>\n\t<" + type + "/>\n</properties>\n");
+    }
+
+    private static void assertMatchesPageData(final WikiPage page) {
+        final PageData data = page.getData();
+        final PageMetadata metadata = PageMetadataLoader.load(page);
+
+        for (final PageType type : PageType.values()) {
+            assertEquals(page.getName() + " " + type, WikiPageUtil.isPageType(data, type), metadata.isPageType(type));
+        }
+
+        for (final String attribute : PageData.NON_SECURITY_ATTRIBUTES) {
+            assertEquals(page.getName() + " " + attribute, data.hasAttribute(attribute),
+                    metadata.hasAttribute(attribute));
+        }
+
+        assertEquals(data.hasAttribute(WikiPageProperty.PRUNE), metadata.isPruned());
+        assertEquals(data.getAttribute(WikiPageProperty.SUITES), metadata.getTags());
+    }
+
+}